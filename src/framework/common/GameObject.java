@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 
 import framework.components.Component;
+import framework.components.ComponentRegistry;
 
 /**
  * The Class GameObject.
@@ -20,10 +21,24 @@ public class GameObject {
 	/** The components a game object has attached. */
 	private ArrayList<Component> components = new ArrayList<>();
 
+	/** The registry of the world this object is in, its components are updated with it. */
+	private ComponentRegistry registry;
+
 	/**
 	 * constructor for default game object.
 	 */
-	public GameObject() { }
+	public GameObject() {
+		this(ComponentRegistry.CLIENT);
+	}
+
+	/**
+	 * Instantiates a new game object in a world other than the game's own.
+	 *
+	 * @param {ComponentRegistry} registry - the registry of the world
+	 */
+	public GameObject(ComponentRegistry registry) {
+		this.registry = registry;
+	}
 
 	/**
 	 * Instantiates a new game object.
@@ -32,6 +47,7 @@ public class GameObject {
 	 * @summary game object with specified transform
 	 */
 	public GameObject(Transform transform) {
+		this(ComponentRegistry.CLIENT);
 		this.transform.position = transform.position;
 		this.transform.rotation = transform.rotation;
 		this.transform.scale = transform.scale;
@@ -47,9 +63,9 @@ public class GameObject {
 		// finds where to add the component
 		for (index = 0; index < this.components.size(); index++)
 			if (this.components.get(index).type.ordinal() > c.type.ordinal()) break;
-		// adds the component to this game object, and components set
+		// adds the component to this game object, and its world's registry
 		this.components.add(index, c);
-		Component.components.add(c);
+		this.registry.add(c);
 	}
 
 	/**
@@ -60,7 +76,7 @@ public class GameObject {
 	 */
 	public void removeComponent(Component c) {
 		this.components.remove(c);
-		Component.components.remove(c);
+		this.registry.remove(c);
 	}
 
 	/**
@@ -104,6 +120,15 @@ public class GameObject {
 		return this.components;
 	}
 
+	/**
+	 * Gets the registry of the world this object is in.
+	 *
+	 * @return {ComponentRegistry} the registry
+	 */
+	public ComponentRegistry getRegistry() {
+		return this.registry;
+	}
+
 	/**
 	 * Checks for component.
 	 *
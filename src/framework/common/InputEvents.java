@@ -0,0 +1,116 @@
+package framework.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class InputEvents, a lock free ring of input events with the time they happened.
+ * The awt thread adds events as they arrive, and the client thread takes them off once a tick,
+ * so each tick knows how far through it every press happened. Only one thread may add,
+ * and only one thread may take.
+ *
+ * @author priyangkar ghosh
+ */
+public class InputEvents {
+
+	/** The Constant CAPACITY, how many events can wait at once, a power of two. */
+	public static final int CAPACITY = 64;
+
+	/** The time, control, state and mouse position of each event. */
+	private final long[] nanos = new long[CAPACITY];
+	private final int[] control = new int[CAPACITY];
+	private final boolean[] pressed = new boolean[CAPACITY];
+	private final double[] x = new double[CAPACITY];
+	private final double[] y = new double[CAPACITY];
+
+	/** The next event to take, and the next slot to add to. */
+	private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+
+	/**
+	 * Adds an event, from the thread the events arrive on.
+	 *
+	 * @param {long} time - when it happened, from System.nanoTime
+	 * @param {int} control - the ordinal of the control
+	 * @param {boolean} isPressed - if the control went down
+	 * @param {double} mouseX - the x of the mouse when it happened
+	 * @param {double} mouseY - the y of the mouse when it happened
+	 * @return {boolean} true, if there was room for it
+	 */
+	public boolean offer(long time, int control, boolean isPressed, double mouseX, double mouseY) {
+		long t = this.tail.getPlain();
+		if (t - this.head.getAcquire() >= CAPACITY) return false;
+
+		int slot = (int) t & (CAPACITY - 1);
+		this.nanos[slot] = time;
+		this.control[slot] = control;
+		this.pressed[slot] = isPressed;
+		this.x[slot] = mouseX;
+		this.y[slot] = mouseY;
+
+		// the event is only seen once it has been written
+		this.tail.setRelease(t + 1);
+		return true;
+	}
+
+	/**
+	 * Checks if there is an event waiting that happened by a time, from the thread taking them.
+	 *
+	 * @param {long} until - the time, from System.nanoTime
+	 * @return {boolean} true, if the next event can be taken
+	 */
+	public boolean hasNext(long until) {
+		long h = this.head.getPlain();
+		return h < this.tail.getAcquire() && this.nanos[(int) h & (CAPACITY - 1)] - until <= 0;
+	}
+
+	/**
+	 * Takes the next event, once it has been read.
+	 */
+	public void next() {
+		this.head.setRelease(this.head.getPlain() + 1);
+	}
+
+	/**
+	 * Gets when the next event happened.
+	 *
+	 * @return {long} the time, from System.nanoTime
+	 */
+	public long getNanos() {
+		return this.nanos[(int) this.head.getPlain() & (CAPACITY - 1)];
+	}
+
+	/**
+	 * Gets the control of the next event.
+	 *
+	 * @return {int} the ordinal of the control
+	 */
+	public int getControl() {
+		return this.control[(int) this.head.getPlain() & (CAPACITY - 1)];
+	}
+
+	/**
+	 * Checks if the next event was a press.
+	 *
+	 * @return {boolean} true, if the control went down
+	 */
+	public boolean isPressed() {
+		return this.pressed[(int) this.head.getPlain() & (CAPACITY - 1)];
+	}
+
+	/**
+	 * Gets the x of the mouse when the next event happened.
+	 *
+	 * @return {double} the x
+	 */
+	public double getX() {
+		return this.x[(int) this.head.getPlain() & (CAPACITY - 1)];
+	}
+
+	/**
+	 * Gets the y of the mouse when the next event happened.
+	 *
+	 * @return {double} the y
+	 */
+	public double getY() {
+		return this.y[(int) this.head.getPlain() & (CAPACITY - 1)];
+	}
+}
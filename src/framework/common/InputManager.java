@@ -6,6 +6,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.util.HashMap;
 
+import framework.math.MathExt;
 import framework.math.Vector;
 import game.Game;
 import networking.Packet;
@@ -50,9 +51,36 @@ public class InputManager {
 		}
 	}
 
+	/** The Constant REDUNDANCY, how many of the latest commands each input packet carries. */
+	public static final int REDUNDANCY = 4;
+
+	/** The Constant KEEPALIVE_TICKS, a command is sent after this many ticks even if nothing changed. */
+	public static final int KEEPALIVE_TICKS = 15;
+
 	/** The mouse position. */
 	private Vector mousePosition = Vector.zero();
 
+	/** The sequence number of the latest command, sent by the client or applied by the server. */
+	private int sequence = 0;
+
+	/** The client tick of the latest command. */
+	private int commandTick = 0;
+
+	/** How far through the latest command's tick the shoot control went down, or -1 if it didn't. */
+	private double pressOffset = -1;
+
+	/** The mouse and key events waiting to be recorded, and when the last tick was recorded. */
+	private InputEvents events = new InputEvents();
+	private long lastRecord = 0;
+
+	/** The latest commands the client recorded, in the slot given by their sequence number. */
+	private int[] historySequence = new int[REDUNDANCY];
+	private int[] historyTick = new int[REDUNDANCY];
+	private boolean[][] historyControls = new boolean[REDUNDANCY][Controls.values().length];
+	private double[] historyX = new double[REDUNDANCY];
+	private double[] historyY = new double[REDUNDANCY];
+	private double[] historyOffset = new double[REDUNDANCY];
+
 	/** The input hash map. */
 	@SuppressWarnings("serial")
 	private HashMap<Controls, Boolean> input =
@@ -73,14 +101,14 @@ public class InputManager {
 	}
 
 	/**
-	 * Processes a mouse event.
+	 * Processes a mouse event, keeping when it happened until the next tick is recorded.
 	 *
 	 * @param {MouseEvent} me - the mouse event
 	 * @param {boolean} pressed - the pressed
 	 */
 	public void process(MouseEvent me, boolean pressed) {
 		if (me.getButton() == Controls.SHOOT.code)
-			this.input.put(Controls.SHOOT, pressed);
+			this.events.offer(System.nanoTime(), Controls.SHOOT.ordinal(), pressed, me.getX(), me.getY());
 	}
 
 	/**
@@ -97,14 +125,157 @@ public class InputManager {
 	}
 
 	/**
-	 * Processes a packet.
+	 * Records the input as a new command, if it changed or the keepalive is due.
+	 * The latest commands are sent again for a few ticks after one is recorded,
+	 * so a change only goes missing if every one of those packets is lost.
+	 *
+	 * @param {int} tick - the client tick
+	 * @return {boolean} true, if the latest commands should be sent
+	 */
+	public boolean record(int tick) {
+		Controls[] controls = Controls.values();
+		double offset = this.takeEvents();
+
+		// compares the input with the last command
+		boolean changed = this.sequence == 0 || tick - this.commandTick >= KEEPALIVE_TICKS || offset >= 0;
+		if (!changed) {
+			int last = this.sequence % REDUNDANCY;
+			changed = this.mousePosition.x != this.historyX[last] || this.mousePosition.y != this.historyY[last];
+			for (int i = 0; i < controls.length && !changed; i++)
+				changed = this.input.get(controls[i]) != this.historyControls[last][i];
+		}
+
+		if (!changed) return tick - this.commandTick < REDUNDANCY;
+
+		// stores the command in the slot of its sequence number
+		this.sequence++;
+		this.commandTick = tick;
+		this.pressOffset = offset;
+		int slot = this.sequence % REDUNDANCY;
+
+		this.historySequence[slot] = this.sequence;
+		this.historyTick[slot] = tick;
+		for (int i = 0; i < controls.length; i++)
+			this.historyControls[slot][i] = this.input.get(controls[i]);
+		this.historyX[slot] = this.mousePosition.x;
+		this.historyY[slot] = this.mousePosition.y;
+		this.historyOffset[slot] = offset;
+
+		return true;
+	}
+
+	/**
+	 * Applies the events that happened since the last tick was recorded.
+	 * A press keeps where the mouse was when it happened, and a release of a control
+	 * pressed in the same tick waits for the next one, so even the shortest click is seen.
+	 *
+	 * @return {double} how far through the tick the shoot control went down, or -1 if it didn't
+	 */
+	private double takeEvents() {
+		long now = System.nanoTime();
+		long start = (this.lastRecord == 0) ? now : this.lastRecord;
+		this.lastRecord = now;
+
+		Controls[] controls = Controls.values();
+		double offset = -1;
+
+		while (this.events.hasNext(now)) {
+			Controls control = controls[this.events.getControl()];
+			boolean pressed = this.events.isPressed();
+
+			// leaves the release of a control pressed this tick for the next tick
+			if (!pressed && control == Controls.SHOOT && offset >= 0) break;
+
+			if (pressed && control == Controls.SHOOT && !this.input.get(control)) {
+				offset = (now == start) ? 1 : MathExt.clamp((this.events.getNanos() - start) / (double) (now - start), 0, 1);
+				this.mousePosition = new Vector(this.events.getX(), this.events.getY());
+			}
+
+			this.input.put(control, pressed);
+			this.events.next();
+		}
+
+		return offset;
+	}
+
+	/**
+	 * Writes the latest commands, oldest first, so a lost packet is covered by the next ones.
 	 *
 	 * @param {Packet} packet - the packet
 	 */
-	public void process(Packet packet) {
-		for (Controls key : Controls.values())
-			this.input.put(key, packet.readBoolean());
-		this.mousePosition = packet.readVector();
+	public void write(Packet packet) {
+		int count = Math.min(this.sequence, REDUNDANCY);
+		packet.write(count);
+
+		for (int s = this.sequence - count + 1; s <= this.sequence; s++) {
+			int slot = s % REDUNDANCY;
+			packet.write(this.historySequence[slot]);
+			packet.write(this.historyTick[slot]);
+			for (boolean pressed : this.historyControls[slot]) packet.write(pressed);
+			packet.write(this.historyX[slot]);
+			packet.write(this.historyY[slot]);
+			packet.write(this.historyOffset[slot]);
+		}
+	}
+
+	/**
+	 * Applies a command the server received, once it's due.
+	 *
+	 * @param {int} sequence - the sequence number
+	 * @param {int} tick - the client tick
+	 * @param {boolean[]} controls - if each control is pressed, in the order of the controls
+	 * @param {double} x - the x of the mouse position
+	 * @param {double} y - the y of the mouse position
+	 * @param {double} offset - how far through the tick the shoot control went down, or -1 if it didn't
+	 */
+	public void apply(int sequence, int tick, boolean[] controls, double x, double y, double offset) {
+		this.sequence = sequence;
+		this.commandTick = tick;
+
+		Controls[] keys = Controls.values();
+		for (int i = 0; i < keys.length; i++) this.input.put(keys[i], controls[i]);
+
+		this.mousePosition.set(x, y);
+		this.pressOffset = offset;
+	}
+
+	/**
+	 * Gets the sequence number of the latest command.
+	 *
+	 * @return {int} the sequence number
+	 */
+	public int getSequence() {
+		return this.sequence;
+	}
+
+	/**
+	 * Gets the client tick of the latest command.
+	 *
+	 * @return {int} the client tick
+	 */
+	public int getCommandTick() {
+		return this.commandTick;
+	}
+
+	/**
+	 * Gets how far through the latest command's tick the shoot control went down.
+	 *
+	 * @return {double} the fraction of the tick, or -1 if it didn't
+	 */
+	public double getPressOffset() {
+		return this.pressOffset;
+	}
+
+	/**
+	 * Takes how far through the latest command's tick the shoot control went down,
+	 * so it's only used on the first tick the command is applied.
+	 *
+	 * @return {double} the fraction of the tick, or -1 if it didn't or was already taken
+	 */
+	public double takePressOffset() {
+		double offset = this.pressOffset;
+		this.pressOffset = -1;
+		return offset;
 	}
 
 	/**
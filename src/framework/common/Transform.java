@@ -1,8 +1,5 @@
 package framework.common;
 
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Point2D;
-
 import framework.math.MathExt;
 import framework.math.Vector;
 
@@ -88,12 +85,22 @@ public class Transform {
 	 * @return {Vector} the rotated vector
 	 */
 	public static Vector rotate(Vector point, Vector pivot, double angle) {
-		Point2D result = new Point2D.Double();
-	    AffineTransform rotation = new AffineTransform();
-
-	    rotation.rotate(angle, pivot.x, pivot.y);
-	    rotation.transform(new Point2D.Double(point.x, point.y), result);
+		return rotate(point, pivot, StrictMath.sin(angle), StrictMath.cos(angle));
+	}
 
-	    return new Vector(result.getX(), result.getY());
+	/**
+	 * Rotates a point by an angle whose sine and cosine are already known, so a whole shape
+	 * is rotated with one of each. They come from StrictMath so every machine rotates a body
+	 * to the same bits, which lockstep needs.
+	 *
+	 * @param {Vector} point - the point
+	 * @param {Vector} pivot - the pivot
+	 * @param {double} sin - the sine of the angle
+	 * @param {double} cos - the cosine of the angle
+	 * @return {Vector} the rotated vector
+	 */
+	public static Vector rotate(Vector point, Vector pivot, double sin, double cos) {
+		double dx = point.x - pivot.x, dy = point.y - pivot.y;
+		return new Vector(pivot.x + dx * cos - dy * sin, pivot.y + dx * sin + dy * cos);
 	}
 }
@@ -1,8 +1,5 @@
 package framework.components;
 
-import java.util.ConcurrentModificationException;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Objects;
 
 import framework.common.GameObject;
@@ -14,45 +11,6 @@ import game.Game;
  * @author priyangkar ghosh
  */
 public abstract class Component {
-	/** The components present in this scene. */
-	public static HashSet<Component> components = new HashSet<>();
-	
-	/**
-	 * Updates each component in the components array.
-	 */
-	public static void refresh() {
-		try {
-			for (Component c : components)  {
-				try { c.update(); }
-				catch (NullPointerException e) { }
-			}
-		}
-
-		catch (ConcurrentModificationException e) { }
-	}
-
-	/**
-	 * Resets the component, by removing all components.
-	 */
-	public synchronized static void reset() {
-		// uses a while loop here so the loop is continued even if 
-		// there's a concurrent modification exception
-		while (true) {
-			try { 
-				// loops using an iterator so concurrent modification exception
-				// isn't thrown while removing from the list
-				for (Iterator<Component> i = components.iterator(); i.hasNext();) {
-				    Component component = i.next();
-				    component.close();
-				    i.remove();
-				}
-				break;
-			}
-			catch (ConcurrentModificationException e) { 
-				continue;
-			}
-		}		
-	}
 
 	/**
 	 * The different types of Components.
@@ -78,7 +36,7 @@ public abstract class Component {
 	protected GameObject host;
 
 	/**
-	 * Instantiates a new component.
+	 * Instantiates a new component, in the registry of its host's world.
 	 *
 	 * @param {GameObject} host - the host
 	 * @param {Type} type - the type
@@ -101,7 +59,7 @@ public abstract class Component {
 	 * Closes a component.
 	 */
 	public synchronized void close() {
-		Component.components.remove(this);
+		this.host.getRegistry().remove(this);
 	}
 
 	/**
@@ -0,0 +1,80 @@
+package framework.components;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Class ComponentRegistry, the components of one world.
+ * The game's own objects are in the client registry, which the game loop updates each frame.
+ * Each server room has a registry of its own that only records which components belong to it,
+ * so the game loop never updates them and they're closed when the room is reset. A room's
+ * registry is never updated as a whole, the room's tick updates its components itself in the
+ * fixed order lockstep needs, so a new kind of server component has to be updated from there.
+ *
+ * @author priyangkar ghosh
+ */
+public class ComponentRegistry {
+
+	/** The Constant CLIENT, the registry of the game's own components, updated by the game loop. */
+	public static final ComponentRegistry CLIENT = new ComponentRegistry();
+
+	/** The components, added to by the network threads while the owner iterates them. */
+	private final Set<Component> components = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Adds a component.
+	 *
+	 * @param {Component} component - the component
+	 */
+	public void add(Component component) {
+		this.components.add(component);
+	}
+
+	/**
+	 * Removes a component.
+	 *
+	 * @param {Component} component - the component
+	 */
+	public void remove(Component component) {
+		this.components.remove(component);
+	}
+
+	/**
+	 * Checks if a component is in the registry.
+	 *
+	 * @param {Component} component - the component
+	 * @return {boolean} true, if it's updated with this registry
+	 */
+	public boolean contains(Component component) {
+		return this.components.contains(component);
+	}
+
+	/**
+	 * Updates each component, the iteration never fails on components added or removed meanwhile.
+	 */
+	public void update() {
+		for (Component c : this.components) {
+			try { c.update(); }
+
+			// if the component was closed while being updated
+			catch (NullPointerException e) { }
+		}
+	}
+
+	/**
+	 * Closes and removes every component.
+	 */
+	public void clear() {
+		for (Component c : this.components) c.close();
+		this.components.clear();
+	}
+
+	/**
+	 * Gets the number of components.
+	 *
+	 * @return {int} the size
+	 */
+	public int size() {
+		return this.components.size();
+	}
+}
@@ -43,6 +43,9 @@ public abstract class Renderer extends Component implements Comparable<Renderer>
 	/**  if it should be rendered. */
 	public boolean enabled = true;
 
+	/** If it should ease towards its host, off for hosts that are already moved smoothly. */
+	public boolean smoothed = true;
+
 	/** The depth.  */
 	protected int depth;
 
@@ -162,7 +165,7 @@ public abstract class Renderer extends Component implements Comparable<Renderer>
 			// linear interpolation
 			Vector center = sprite.renderPosition =
 					MathExt.lerp(sprite.renderPosition, host.transform.position, Game.LERP_CONSTANT);
-			if (host.transform.position.subtract(center).sqrMagnitude > TELEPORT_MAGNITUDE)
+			if (!sprite.smoothed || host.transform.position.subtract(center).sqrMagnitude > TELEPORT_MAGNITUDE)
 				center = sprite.renderPosition = host.transform.position;
 			center = center.add(sprite.offset).add(Renderer.currentOffset);
 
@@ -170,7 +173,7 @@ public abstract class Renderer extends Component implements Comparable<Renderer>
 			// linear interpolation
 			double rotation = sprite.renderRotation =
 					MathExt.lerp(sprite.renderRotation, host.transform.rotation, Game.LERP_CONSTANT);
-			if (host.transform.rotation - rotation > 0.4)
+			if (!sprite.smoothed || host.transform.rotation - rotation > 0.4)
 				rotation = sprite.renderRotation = host.transform.rotation;
 
 			Vector size = sprite.size.scale(host.transform.scale);
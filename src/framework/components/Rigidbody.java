@@ -310,13 +310,14 @@ public class Rigidbody extends Component {
 	 */
 	public void rotate(double angle, boolean conserveVelocity) {
 		Vector origin = this.host.transform.position;
+		double sin = StrictMath.sin(angle), cos = StrictMath.cos(angle);
 
 		for (Vertex v : this.vertices) {
 			// store temporary position
 			Vector temp = v.position;
 
 			// rotates the vertex
-			v.position = Transform.rotate(v.position, origin, angle);
+			v.position = Transform.rotate(v.position, origin, sin, cos);
 
 			// conserves the angular velocity
 			if (conserveVelocity)
@@ -324,6 +325,64 @@ public class Rigidbody extends Component {
 		}
 	}
 
+	/**
+	 * Gets the speed of the body, the average distance its vertices moved last step.
+	 *
+	 * @return {double} the speed in pixels per step
+	 */
+	public double getSpeed() {
+		double x = 0, y = 0;
+		for (Vertex v : this.vertices) {
+			x += v.position.x - v.previousPosition.x;
+			y += v.position.y - v.previousPosition.y;
+		}
+		return Math.sqrt(x * x + y * y) / this.vertices.length;
+	}
+
+	/**
+	 * Gets the velocity of the body, the average distance its vertices moved last step.
+	 *
+	 * @return {Vector} the velocity in pixels per step
+	 */
+	public Vector getVelocity() {
+		double x = 0, y = 0;
+		for (Vertex v : this.vertices) {
+			x += v.position.x - v.previousPosition.x;
+			y += v.position.y - v.previousPosition.y;
+		}
+		return new Vector(x / this.vertices.length, y / this.vertices.length);
+	}
+
+	/**
+	 * Gets the angular velocity of the body, how far it turned last step.
+	 *
+	 * @return {double} the angular velocity in radians per step
+	 */
+	public double getAngularVelocity() {
+		// finds the current and previous midpoints
+		Vector midpoint = Vector.zero(), previousMidpoint = Vector.zero();
+		for (Vertex v : this.vertices) {
+			midpoint.translate(v.position);
+			previousMidpoint.translate(v.previousPosition);
+		}
+		midpoint = midpoint.scale(1d / this.vertices.length);
+		previousMidpoint = previousMidpoint.scale(1d / this.vertices.length);
+		
+		// the angle the first vertex turned around the midpoint, the same way the rotation is found
+		Vector current = this.vertices[0].position.subtract(midpoint);
+		Vector previous = this.vertices[0].previousPosition.subtract(previousMidpoint);
+		return current.signedAngle(previous);
+	}
+
+	/**
+	 * Gets the vertices, in order around the outside of the body.
+	 *
+	 * @return {Vertex[]} the vertices
+	 */
+	public Vertex[] getVertices() {
+		return vertices;
+	}
+
 	/**
 	 * Gets the aabb.
 	 *
@@ -5,9 +5,9 @@ import framework.common.InputManager;
 import framework.common.InputManager.Controls;
 import framework.math.Vector;
 import framework.physics.Physics.ForceMode;
+import game.Game;
 import gameobjects.SPlayer;
 import gameobjects.SShot;
-import networking.server.ServerManager;
 
 /**
  * CharacterController component.
@@ -64,30 +64,58 @@ public class SCharacterController extends Component {
 
 	}
 
+	/**
+	 * Gets how many ticks a shot has travelled for by the end of the tick it was fired in.
+	 *
+	 * @param {double} offset - how far through the tick the trigger was pulled, or -1 if it wasn't
+	 * @return {double} the fraction of a tick
+	 */
+	public static double lead(double offset) {
+		return (offset < 0) ? 0 : 1 - offset;
+	}
+
 	/**
 	 * Updates the character.
 	 */
 	@Override
 	public void update() {
-		Vector mouseDir = this.inputManager.getMouseDirection(this.host.transform.position);
-		double rotateAngle = mouseDir.completeAngle(this.host.transform.right());
-		
-		// rotates the body towards the mouse, and moves it towards it too
-		this.body.rotate(rotateAngle, true);
-		this.body.addForce(mouseDir.scale(this.moveForce), ForceMode.FORCE);
+		Vector mouseDir = steer(this.body, this.inputManager.getMousePosition(), this.moveForce);
 		
 		// lowers the shot timer
-		this.shotTimer = Math.max(this.shotTimer - sps, 0);
+		this.shotTimer = Math.max(this.shotTimer - sps * Game.getFixedTimestep(), 0);
+		
+		// how far through the tick the trigger was pulled, only on the first tick it's applied
+		double offset = this.inputManager.takePressOffset();
 		
 		// checks if the player can shoot
 		if (this.inputManager.getInput(Controls.SHOOT) && this.shotTimer == 0) {
-			// shoots if the player can shoot
-			ServerManager.shoot(this.id, this.host.transform.position, mouseDir);
+			// shoots if the player can shoot, a shot fired partway through the tick has already travelled
+			((SPlayer) this.host).getManager().shoot(this.id, this.host.transform.position, mouseDir, lead(offset));
 			this.body.addForce(mouseDir.scale(recoilMagnitude), ForceMode.IMPULSE);
 			this.shotTimer = 1;
 		}
 	}
 
+	/**
+	 * Steers a body towards the mouse, the movement the server runs for every player
+	 * and the client runs to predict its own.
+	 *
+	 * @param {Rigidbody} body - the body
+	 * @param {Vector} mousePosition - the mouse position
+	 * @param {Vector} moveForce - the move force
+	 * @return {Vector} the direction from the body to the mouse
+	 */
+	public static Vector steer(Rigidbody body, Vector mousePosition, Vector moveForce) {
+		Vector position = body.getHost().transform.position;
+		Vector mouseDir = mousePosition.subtract(position).normalized();
+		double rotateAngle = mouseDir.completeAngle(body.getHost().transform.right());
+		
+		// rotates the body towards the mouse, and moves it towards it too
+		body.rotate(rotateAngle, true);
+		body.addForce(mouseDir.scale(moveForce), ForceMode.FORCE);
+		return mouseDir;
+	}
+
 	/**
 	 * Closes this component.
 	 */
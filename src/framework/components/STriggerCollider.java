@@ -5,7 +5,7 @@ import java.util.ArrayList;
 import framework.common.GameObject;
 import framework.math.AABB;
 import framework.math.Vector;
-import networking.server.ServerManager;
+import framework.physics.Physics;
 
 /**
  * The Class STriggerCollider.
@@ -19,15 +19,20 @@ public class STriggerCollider extends Component {
 	
 	/** The trigger. */
 	private Rigidbody trigger;
+	
+	/** The world it's tested against. */
+	private Physics world;
 
 	/**
 	 * Instantiates a new server trigger collider.
 	 *
 	 * @param {GameObject} host - the host
+	 * @param {Physics} world - the world it's tested against
 	 * @param size {Vector} - the size
 	 */
-	public STriggerCollider(GameObject host, Vector size) {
+	public STriggerCollider(GameObject host, Physics world, Vector size) {
 		super(host, Component.Type.TRIGGER_COLLIDER);
+		this.world = world;
 		
 		// sets the aabb for this collider
 		Vector halfSize = size.scale(0.5d);
@@ -46,7 +51,7 @@ public class STriggerCollider extends Component {
 		this.aabb.set(this.host.transform.position);
 		
 		// finds what it overlaps with
-		ArrayList<AABB> overlaps = ServerManager.world.getTree().overlaps(this.aabb);
+		ArrayList<AABB> overlaps = this.world.getTree().overlaps(this.aabb);
 		
 		// finds the first trigger / collision with a rigidbody
 		this.trigger = null;
@@ -78,5 +83,6 @@ public class STriggerCollider extends Component {
 
 		this.aabb = null;
 		this.trigger = null;
+		this.world = null;
 	}
 }
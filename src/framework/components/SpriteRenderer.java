@@ -105,7 +105,7 @@ public class SpriteRenderer extends Renderer {
 			
 
 			// initializes the fps for the animation to run at
-			this.fps = fps * Game.FIXED_TIMESTEP;
+			this.fps = fps;
 
 			// sets the sizing to be correct
 			this.setSize(new Vector(width, height));
@@ -135,7 +135,7 @@ public class SpriteRenderer extends Renderer {
 	@Override
 	public void update() {
 		super.update();
-		if (this.current > 0 || this.looping) this.current += this.fps;
+		if (this.current > 0 || this.looping) this.current += this.fps * Game.getFixedTimestep();
 		this.current = (this.current > this.frames.length) ? 0 : this.current;
 	}
 	
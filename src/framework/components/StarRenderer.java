@@ -75,7 +75,7 @@ public class StarRenderer extends Renderer {
 			g2d.fillOval((int)starPos.x, (int)starPos.y, starSize, starSize);
 		}
 		// scrolls the star map
-		offset += Game.FIXED_TIMESTEP * SCROLL_SPEED;
+		offset += Game.getFixedTimestep() * SCROLL_SPEED;
 	}
 	
 	/**
@@ -77,12 +77,12 @@ public class MathExt {
 	}
 
 	/**
-	 * angle to vector.
+	 * angle to vector, the same on every machine as the simulation uses it.
 	 *
 	 * @param {double} angle - the angle
 	 * @return {Vector} the vector
 	 */
 	public static Vector toVector(double angle) {
-		return new Vector(Math.cos(angle), Math.sin(angle));
+		return new Vector(StrictMath.cos(angle), StrictMath.sin(angle));
 	}
 }
@@ -249,12 +249,13 @@ public class Vector {
 
 	/**
 	 * Angle between two vectors. (0° to 180° / 0 rad to π rad)
+	 * strict so every machine running the simulation gets the same angle
 	 *
 	 * @param {Vector} other - the other
 	 * @return {double} angle in radians
 	 */
 	public double angle(Vector other) {
-		return Math.acos(MathExt.clamp(this.normalized().dot(other.normalized()), -1, 1)) % MathExt.TWO_PI;
+		return StrictMath.acos(MathExt.clamp(this.normalized().dot(other.normalized()), -1, 1)) % MathExt.TWO_PI;
 	}
 
 	/**
@@ -37,6 +37,9 @@ public class Physics implements Runnable {
 	/** If this world is active. */
 	private volatile boolean active;
 
+	/** If each step is resolved straight away on the caller's thread, so it runs the same every time. */
+	private boolean deterministic = false;
+
 	/**
 	 * Instantiates a new physics.
 	 */
@@ -55,6 +58,8 @@ public class Physics implements Runnable {
 	 * Initializes the world.
 	 */
 	public void init() {
+		// a deterministic world has no thread of its own
+		if (this.deterministic) return;
 		new Thread(this).start();
 	}
 
@@ -62,7 +67,26 @@ public class Physics implements Runnable {
 	 * Advances the physics world by one step.
 	 */
 	public void step() {
-		this.steps++;
+		if (this.deterministic) this.resolve();
+		else this.steps++;
+	}
+
+	/**
+	 * Sets if steps are resolved on the caller's thread, only before the world is initialized.
+	 *
+	 * @param {boolean} deterministic - if the world is deterministic
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
+	}
+
+	/**
+	 * Checks if steps are resolved on the caller's thread.
+	 *
+	 * @return {boolean} true, if the world is deterministic
+	 */
+	public boolean isDeterministic() {
+		return this.deterministic;
 	}
 
 	/**
@@ -82,36 +106,7 @@ public class Physics implements Runnable {
 			// if the world should update
 			while (this.steps > 0) {
 				try {
-					// loops through each rigidbody and adds gravity if the body is dynamic
-					for (Rigidbody rb : this.rigidbodies) {
-						if (rb.mode.isDynamic())
-							rb.addForce(this.gravity, ForceMode.FORCE);
-					}
-					
-					// updates the aabb tree
-					this.aabbTree.updateTree();
-					
-					// loops through each body
-					for (Rigidbody rb : this.rigidbodies) {
-						// if its static it doesn't do any collision checking
-						if (rb.mode.isStatic()) continue;
-						
-						// broadphase check for what this aabb overlaps with
-						ArrayList<AABB> overlaps = this.aabbTree.overlaps(rb.getAABB());
-						
-						// resolves collision x times
-						for (int i = 0; i < Physics.COLLISION_ITERATIONS; i++)
-							for (AABB other : overlaps) {
-								// checks to see if the parent of this aabb is a component
-								Component comp = other.getComponent();
-								
-								// resolves collision if it's an instance of a rigidbody
-								if (comp instanceof Rigidbody)
-									Physics.processCollision(
-											rb.collision((Rigidbody)comp)
-									);
-							}
-					}
+					this.resolve();
 					
 					// decrements the steps
 					this.steps--;
@@ -124,6 +119,42 @@ public class Physics implements Runnable {
 		}
 	}
 
+	/**
+	 * Resolves one step, adding gravity and then the collisions of each body in the order they were added.
+	 */
+	private void resolve() {
+		// loops through each rigidbody and adds gravity if the body is dynamic
+		for (Rigidbody rb : this.rigidbodies) {
+			if (rb.mode.isDynamic())
+				rb.addForce(this.gravity, ForceMode.FORCE);
+		}
+		
+		// updates the aabb tree
+		this.aabbTree.updateTree();
+		
+		// loops through each body
+		for (Rigidbody rb : this.rigidbodies) {
+			// if its static it doesn't do any collision checking
+			if (rb.mode.isStatic()) continue;
+			
+			// broadphase check for what this aabb overlaps with
+			ArrayList<AABB> overlaps = this.aabbTree.overlaps(rb.getAABB());
+			
+			// resolves collision x times
+			for (int i = 0; i < Physics.COLLISION_ITERATIONS; i++)
+				for (AABB other : overlaps) {
+					// checks to see if the parent of this aabb is a component
+					Component comp = other.getComponent();
+					
+					// resolves collision if it's an instance of a rigidbody
+					if (comp instanceof Rigidbody)
+						Physics.processCollision(
+								rb.collision((Rigidbody)comp)
+						);
+				}
+		}
+	}
+
 	/**
 	 * Process a collision.
 	 *
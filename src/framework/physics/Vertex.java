@@ -59,10 +59,11 @@ public class Vertex {
 		Vector velocity = getVelocity();
 		
 		// dampens the velocity
-		this.previousPosition = this.position.add(velocity.scale(mat.drag() * Game.FIXED_TIMESTEP));
+		double step = Game.getFixedTimestep();
+		this.previousPosition = this.position.add(velocity.scale(mat.drag() * step));
 		
 		// calculates the new position
-		this.position = this.position.add(velocity).add(force.scale(Game.FIXED_TIMESTEP * Game.FIXED_TIMESTEP));
+		this.position = this.position.add(velocity).add(force.scale(step * step));
 	}
 
 	/**
@@ -0,0 +1,98 @@
+package game;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Properties;
+
+import networking.server.Server;
+
+/**
+ * The Class DedicatedServer, the driver class for a server without a window.
+ * Nothing here touches swing or the awt toolkit, so it runs on a headless machine.
+ * It's configured with a properties file and command line options, which are put
+ * in the player prefs the server already reads its settings from.
+ *
+ * usage: java game.DedicatedServer [--config=server.properties] [--port=7777]
+ *        [--maxPlayers=10] [--asteroids=15] [--tickRate=45] [--key=value ...]
+ *
+ * @author priyangkar ghosh
+ */
+public class DedicatedServer {
+
+	/**
+	 * The main method.
+	 *
+	 * @param {String[]} args - the arguments
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		long start = System.nanoTime();
+
+		if (!configure(args)) {
+			System.exit(1);
+			return;
+		}
+
+		// the rooms step at the tick rate asked for, so one the game can't be stepped at isn't started
+		double tickRate = PlayerPrefs.get("tickRate", Game.getTickRate());
+		if (!(tickRate >= Game.MIN_TICK_RATE && tickRate <= Game.MAX_TICK_RATE)) {
+			System.out.printf("[SERVER] Tick rate of %s Hz isn't between %.0f and %.0f Hz.\n", PlayerPrefs.get("tickRate", ""), Game.MIN_TICK_RATE, Game.MAX_TICK_RATE);
+			System.exit(1);
+			return;
+		}
+
+		// starts each room on its own port, or on any free port if none was given
+		int port = PlayerPrefs.get("port", 0);
+		Server[] rooms = new Server[Math.max(1, PlayerPrefs.get("rooms", 1))];
+		for (int i = 0; i < rooms.length; i++) {
+			rooms[i] = new Server();
+			rooms[i].start((port == 0) ? 0 : port + i);
+		}
+
+		// stops the rooms cleanly when the process is asked to stop
+		// the rooms' threads keep the process alive until it's asked to stop
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			for (Server room : rooms) room.stop();
+		}));
+		System.out.printf("[SERVER] Dedicated server ready with %d rooms in %d ms.\n", rooms.length, (System.nanoTime() - start) / 1000000);
+	}
+
+	/**
+	 * Reads the config file, then the command line options over it, into the player prefs.
+	 *
+	 * @param {String[]} args - the arguments, each as --key=value
+	 * @return {boolean} true, if every option could be read
+	 */
+	private static boolean configure(String[] args) {
+		Properties options = new Properties();
+
+		// reads the config file first, so the command line can override it
+		for (String arg : args) {
+			if (!arg.startsWith("--config=")) continue;
+
+			String path = arg.substring("--config=".length());
+			try (FileReader reader = new FileReader(path)) { options.load(reader); }
+
+			catch (IOException e) {
+				System.out.println("[SERVER] Config file " + path + " could not be read.");
+				return false;
+			}
+		}
+
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			if (!arg.startsWith("--") || equals < 0) {
+				System.out.println("[SERVER] Option " + arg + " isn't of the form --key=value.");
+				return false;
+			}
+
+			options.setProperty(arg.substring(2, equals), arg.substring(equals + 1));
+		}
+
+		// the server reads all of its settings from the player prefs
+		options.remove("config");
+		for (String key : options.stringPropertyNames())
+			PlayerPrefs.set(key, options.getProperty(key).trim());
+		return true;
+	}
+}
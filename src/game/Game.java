@@ -4,7 +4,8 @@ import java.awt.event.ActionListener;
 
 import framework.audio.AudioManager;
 import framework.common.GameObject;
-import framework.components.Component;
+import framework.components.ComponentRegistry;
+import framework.math.MathExt;
 import framework.math.Vector;
 import gui.GamePanel;
 import gui.Window;
@@ -26,8 +27,8 @@ public class Game {
 	/** The Constant CENTER. */
 	public static final Vector CENTER = WINDOW_RES.scale(0.5d);
 
-	/** The Constant CONTENT_PANE. */
-	private static final GamePanel CONTENT_PANE = new GamePanel();
+	/** The content pane, only created with the window so a dedicated server never touches swing. */
+	private static GamePanel contentPane;
 
 	/** The Prefab Constant. */
 	private static final GameObject PREFAB_OBJECT = new GameObject();
@@ -38,8 +39,15 @@ public class Game {
 	/** The Constant METER_TO_PIXEL. */
 	public static final int METER_TO_PIXEL = 32;
 
-	/** The Constant FIXED_TIMESTEP. */
-	public static final double FIXED_TIMESTEP = 0.0222;
+	/** The Constant DEFAULT_FIXED_TIMESTEP, the timestep used unless a server is set to another tick rate. */
+	public static final double DEFAULT_FIXED_TIMESTEP = 0.0222;
+
+	/** The Constant MIN_TICK_RATE and MAX_TICK_RATE, the bounds of the tick rates the game can be stepped at. */
+	public static final double MIN_TICK_RATE = 10;
+	public static final double MAX_TICK_RATE = 120;
+
+	/** The fixed timestep, set by the server this process hosts or has joined. */
+	private static volatile double fixedTimestep = DEFAULT_FIXED_TIMESTEP;
 
 	/** The Constant RENDER_TIMESTEP. */
 	public static final int RENDER_TIMESTEP = 1000 / MAX_FPS;
@@ -56,6 +64,7 @@ public class Game {
 	 * @param {String[]} args - the arguments
 	 */
 	public static void main(String[] args) {
+		contentPane = new GamePanel();
 		Window window = new Window(NAME, false, Window.getDisplayCenter(), WINDOW_RES);
 		window.setVisible(true);
 		
@@ -63,9 +72,8 @@ public class Game {
 		PlayerPrefs.init();
 		AudioManager.play("music", true);
 		
-		// initializes the time steps
+		// initializes the render time step
 		long renderNanoStep = 1000000 * RENDER_TIMESTEP;
-		double fixedNanoStep = 1000000000 * FIXED_TIMESTEP;
 		
 		// loads the initial scene
 		Scene.load(new CoverScene());
@@ -77,20 +85,22 @@ public class Game {
 			
 			// runs the loop until game is stopped
 			while (running) {
+				// the fixed time step is read each time, as joining a server can change it
 				long now = System.nanoTime();
+				double fixedNanoStep = 1000000000 * fixedTimestep;
 				delta += (now - start) / fixedNanoStep;
 				start = now;
 				
 				// updates if it's time for the fixed timestep
 				while (delta >= 1) {
-					Component.refresh();
+					ComponentRegistry.CLIENT.update();
 					Scene.get().fixedUpdate();
 					delta--;
 				}
 				
 				// updates if it's time for a render step
 				Scene.get().update();
-				CONTENT_PANE.repaint();
+				contentPane.repaint();
 				while (now - start < renderNanoStep) {
 					Thread.yield();
 
@@ -107,13 +117,40 @@ public class Game {
 		gameLoop.run();
 	}
 
+	/**
+	 * Gets the fixed timestep.
+	 *
+	 * @return {double} the length of a tick in seconds
+	 */
+	public static double getFixedTimestep() {
+		return fixedTimestep;
+	}
+
+	/**
+	 * Sets the fixed timestep, within the bounds of the tick rates.
+	 *
+	 * @param {double} timestep - the length of a tick in seconds
+	 */
+	public static void setFixedTimestep(double timestep) {
+		fixedTimestep = MathExt.clamp(timestep, 1 / MAX_TICK_RATE, 1 / MIN_TICK_RATE);
+	}
+
+	/**
+	 * Gets the tick rate.
+	 *
+	 * @return {double} the ticks per second
+	 */
+	public static double getTickRate() {
+		return 1 / fixedTimestep;
+	}
+
 	/**
 	 * Gets the content pane.
 	 *
 	 * @return {GamePanel} the content pane
 	 */
 	public static GamePanel getContentPane() {
-		return CONTENT_PANE;
+		return contentPane;
 	}
 
 	/**
@@ -122,7 +159,7 @@ public class Game {
 	 * @return {ActionListener} the action listener
 	 */
 	public static ActionListener getActionListener() {
-		return CONTENT_PANE;
+		return contentPane;
 	}
 
 	/**
@@ -4,8 +4,8 @@
 package gameobjects;
 
 import framework.common.GameObject;
-import framework.common.Transform;
 import framework.components.SpriteRenderer;
+import framework.math.Vector;
 
 /**
  * The Class CShot.
@@ -14,15 +14,122 @@ import framework.components.SpriteRenderer;
  */
 public class CShot extends GameObject {
 	
+	/** The id used to identify the shot over the network. */
+	private int id;
+	
+	/** Where the shot was fired from, and how far it moves each tick. */
+	private Vector origin, moveVector;
+	
+	/** The speed in pixels per tick. */
+	private double speed;
+	
+	/** The server tick the shot was fired on. */
+	private double spawnTick;
+	
+	/** If the local player fired it, so it's shown in the present like the player is. */
+	private boolean predicted;
+	
+	/** The server tick the shot was removed on, so it's only hidden once it's shown reaching it. */
+	private double removeTick = Double.POSITIVE_INFINITY;
+	
 	/**
 	 * Instantiates a new c shot.
 	 *
-	 * @param {Transform} transform - the transform
+	 * @param {int} id - the id
+	 * @param {Vector} origin - the origin
+	 * @param {Vector} direction - the direction
+	 * @param {double} speed - the speed in pixels per tick
+	 * @param {double} spawnTick - the server tick the shot was fired on
+	 * @param {boolean} predicted - if the local player fired it
 	 */
-	public CShot(Transform transform) {
-		super(transform);
+	public CShot(int id, Vector origin, Vector direction, double speed, double spawnTick, boolean predicted) {
+		super();
+		this.id = id;
+		this.speed = speed;
+		this.spawnTick = spawnTick;
+		this.predicted = predicted;
 		
-		// adds a sprite renderer component to this game object
-		new SpriteRenderer(this, SpriteRenderer.PRELOADS.get("shot"));
+		// sets the transform the same way the server shot does
+		this.transform.position = new Vector(origin);
+		this.transform.scale = Vector.one();
+		this.aim(origin, direction);
+		
+		// adds a sprite renderer component to this game object, it's placed exactly each frame
+		new SpriteRenderer(this, SpriteRenderer.PRELOADS.get("shot")).smoothed = false;
+	}
+
+	/**
+	 * Confirms a predicted shot with the server's, keeping when it was shown as fired
+	 * so it carries on from where it is.
+	 *
+	 * @param {int} id - the id the server gave it
+	 * @param {Vector} origin - the server's origin
+	 * @param {Vector} direction - the server's direction
+	 */
+	public void confirm(int id, Vector origin, Vector direction) {
+		this.id = id;
+		this.aim(origin, direction);
+	}
+
+	/**
+	 * Sets where the shot starts and the direction it travels in.
+	 *
+	 * @param {Vector} origin - the origin
+	 * @param {Vector} direction - the direction
+	 */
+	private void aim(Vector origin, Vector direction) {
+		this.origin = new Vector(origin);
+		this.transform.rotation = Math.atan2(direction.y, direction.x);
+		this.moveVector = this.transform.up().scale(this.speed);
+	}
+
+	/**
+	 * Places the shot where it is at a tick, the server moves it in a straight line each tick.
+	 *
+	 * @param {double} tick - the server tick, with the fraction of the way through it
+	 */
+	public void place(double tick) {
+		double elapsed = Math.max(0, tick - this.spawnTick);
+		this.transform.position.set(
+				this.origin.x + this.moveVector.x * elapsed,
+				this.origin.y + this.moveVector.y * elapsed
+		);
+	}
+
+	/**
+	 * Marks the shot as removed by the server.
+	 *
+	 * @param {double} tick - the server tick it was removed on
+	 */
+	public void remove(double tick) {
+		this.removeTick = tick;
+	}
+
+	/**
+	 * Checks if the shot is gone by a tick.
+	 *
+	 * @param {double} tick - the server tick being shown
+	 * @return {boolean} true, if the server had removed it by then
+	 */
+	public boolean isRemoved(double tick) {
+		return tick >= this.removeTick;
+	}
+
+	/**
+	 * Checks if the local player fired it.
+	 *
+	 * @return {boolean} true, if it's shown in the present
+	 */
+	public boolean isPredicted() {
+		return this.predicted;
+	}
+
+	/**
+	 * Gets the id.
+	 *
+	 * @return {int} the id of this shot
+	 */
+	public int getId() {
+		return this.id;
 	}
 }
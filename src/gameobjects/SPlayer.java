@@ -1,6 +1,7 @@
 package gameobjects;
 
 import framework.common.GameObject;
+import framework.common.InputManager.Controls;
 import framework.components.Rigidbody;
 import framework.components.SCharacterController;
 import framework.math.MathExt;
@@ -22,18 +23,21 @@ public class SPlayer extends GameObject {
 	/** The Constant MAX_HEALTH. */
 	public static final int MAX_HEALTH = 100;
 	
-	/** The Constant REGEN_AMOUNT. */
-	public static final double REGEN_AMOUNT = 5 * Game.FIXED_TIMESTEP;
+	/** The Constant REGEN_AMOUNT, the health regained a second. */
+	public static final double REGEN_AMOUNT = 5;
 
 	/** The Constant MOVE_FORCE. */
 	public static final Vector MOVE_FORCE = new Vector(25, 25).scale(Game.METER_TO_PIXEL);
 	
 	/** The Constant SHOTS_PER_SECOND. */
-	public static final double SHOTS_PER_SECOND = 4 * Game.FIXED_TIMESTEP; // shots per second
+	public static final double SHOTS_PER_SECOND = 4;
 	
 	/** The Constant RECOIL. */
 	public static final double RECOIL = 5;
 
+	/** The match this player is in. */
+	private ServerManager manager;
+
 	/** The id and name of the player. */
 	private int id;		
 	private String name;
@@ -43,15 +47,7 @@ public class SPlayer extends GameObject {
 	private double health;
 
 	/** The rigidbody of this player. */
-	public Rigidbody body = new Rigidbody(
-			this, RigidbodyMode.KINEMATIC, 1,
-			new Vertex[] {
-					new Vertex(new Vector(10, 0)), // is a trapezoid
-					new Vertex(new Vector(22, 0)),
-					new Vertex(new Vector(32, 30)),
-					new Vertex(new Vector(0, 30)),
-			}, new Material(1, 0)
-	);
+	public Rigidbody body = createBody(this);
 
 	/** The controller. */
 	public SCharacterController controller;
@@ -59,10 +55,14 @@ public class SPlayer extends GameObject {
 	/**
 	 * Instantiates a new SPlayer.
 	 *
+	 * @param {ServerManager} manager - the match the player is in
 	 * @param {int} id - the id
 	 * @param {String} name - the name
 	 */
-	public SPlayer(int id, String name) {
+	public SPlayer(ServerManager manager, int id, String name) {
+		// the player is in the match's world, whose tick updates it in the order of the players' ids
+		super(manager.components);
+		this.manager = manager;
 		this.id = id;
 		this.name = name;
 		
@@ -72,16 +72,34 @@ public class SPlayer extends GameObject {
 		);
 		
 		// adds the body to the physics world and spawns the player
-		ServerManager.world.addBody(this.body);
+		this.manager.world.addBody(this.body);
 		this.spawn();
 	}
 
+	/**
+	 * Creates the body of a player, also used by the client to predict its own player.
+	 *
+	 * @param {GameObject} host - the host
+	 * @return {Rigidbody} the body
+	 */
+	public static Rigidbody createBody(GameObject host) {
+		return new Rigidbody(
+				host, RigidbodyMode.KINEMATIC, 1,
+				new Vertex[] {
+						new Vertex(new Vector(10, 0)), // is a trapezoid
+						new Vertex(new Vector(22, 0)),
+						new Vertex(new Vector(32, 30)),
+						new Vertex(new Vector(0, 30)),
+				}, new Material(1, 0)
+		);
+	}
+
 	/**
 	 * Update.
 	 */
 	public void update() {
 		// regenerates the player hp, making sure it doesn't exceed the max health
-		this.health = MathExt.clamp(this.health + REGEN_AMOUNT, 0, MAX_HEALTH);		
+		this.health = MathExt.clamp(this.health + REGEN_AMOUNT * Game.getFixedTimestep(), 0, MAX_HEALTH);		
 	}
 
 	/**
@@ -90,8 +108,8 @@ public class SPlayer extends GameObject {
 	public void spawn() {
 		this.health = MAX_HEALTH;
 		
-		// randomly chooses where to spawn the player
-		Vector spawnPosition = new Vector(1260 * Math.random(), 680 * Math.random());
+		// randomly chooses where to spawn the player, from the world's seeded generator
+		Vector spawnPosition = new Vector(1260 * this.manager.random.nextDouble(), 680 * this.manager.random.nextDouble());
 		Vector translation = spawnPosition.subtract(this.transform.position);
 
 		// set the velocity of the body to 0, and move it to the spawn position
@@ -111,11 +129,39 @@ public class SPlayer extends GameObject {
 		if (this.health > 0) return;
 		
 		// if the health goes lower than 0, then the player dies
-		ServerManager.addKill(from);
-		ServerSend.killedPlayer(from);
+		// in lockstep every client counts the kill itself
+		this.manager.addKill(from);
+		if (!this.manager.isLockstep()) ServerSend.killedPlayer(this.manager.getServer(), from);
 		this.spawn();
 	}
 
+	/**
+	 * Gets the match the player is in.
+	 *
+	 * @return {ServerManager} the server manager
+	 */
+	public ServerManager getManager() {
+		return this.manager;
+	}
+
+	/**
+	 * Gets the id.
+	 *
+	 * @return {int} the id of the client controlling this player
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * Gets the name.
+	 *
+	 * @return {String} the name of the player
+	 */
+	public String getName() {
+		return this.name;
+	}
+
 	/**
 	 * Gets the current health.
 	 *
@@ -125,6 +171,15 @@ public class SPlayer extends GameObject {
 		return this.health;
 	}
 
+	/**
+	 * Checks if the player is holding the shoot input.
+	 *
+	 * @return {boolean} true, if shooting
+	 */
+	public boolean isShooting() {
+		return this.controller.inputManager.getInput(Controls.SHOOT);
+	}
+
 	/**
 	 * Gets how many kills this player has.
 	 *
@@ -1,13 +1,12 @@
 package gameobjects;
 
-import java.util.UUID;
-
 import framework.common.GameObject;
 import framework.components.Rigidbody;
 import framework.components.STriggerCollider;
 import framework.math.Vector;
 import framework.physics.Physics.ForceMode;
 import game.Game;
+import networking.server.ServerManager;
 
 /**
  * The Class SShot (server-side shot).
@@ -19,20 +18,23 @@ public class SShot extends GameObject {
 	/** The Constant LIFESPAN. */
 	private static final double LIFESPAN = 3;
 	
-	/** The Constant SPAWN_OFFSET. */
-	private static final double SPAWN_OFFSET = 30;
+	/** The Constant SPAWN_OFFSET, how far in front of the player shots start. */
+	public static final double SPAWN_OFFSET = 30;
 	
 	/** The Constant DAMAGE. */
 	private static final int DAMAGE = 35;
 
-	/** The Constant MOVE_SPEED. */
-	private static final double MOVE_SPEED = 15 * Game.METER_TO_PIXEL * Game.FIXED_TIMESTEP;
+	/** The Constant MOVE_SPEED, in pixels per second. */
+	public static final double MOVE_SPEED = 15 * Game.METER_TO_PIXEL;
 	
 	/** The Constant RECOIL_MAGNITUDE. */
 	private static final double RECOIL_MAGNITUDE = 8;
 	
 	/** The Constant PIXEL_SIZE. */
 	private static final Vector PIXEL_SIZE = new Vector(12, 12);
+	
+	/** The match the shot is in. */
+	private ServerManager manager;
 
 	/** from. */
 	// id of client which shot the bullet
@@ -40,11 +42,20 @@ public class SShot extends GameObject {
 
 	/** The id. */
 	// id used to identify the shot over the network
-	private String id;
+	private int id;
 
 	/** The move vector. */
 	private Vector moveVector, recoilVector;
 	
+	/** Where the shot started, and the direction it travels in. */
+	private Vector origin, direction;
+	
+	/** The tick the shot was spawned on. */
+	private int spawnTick;
+	
+	/** How many ticks behind the server the players are tested where the shooter saw them. */
+	private int rewind;
+	
 	/** The current lifespan. */
 	private double currentLifespan;
 
@@ -54,18 +65,24 @@ public class SShot extends GameObject {
 	/**
 	 * Instantiates a new server shot.
 	 *
+	 * @param {ServerManager} manager - the match the shot is in
 	 * @param {int} from - the from
 	 * @param {Vector} position - the position
 	 * @param {Vector} shotDir - the shot dir
+	 * @param {int} spawnTick - the tick the shot was spawned on
+	 * @param {int} rewind - how many ticks back the players are tested
 	 */
-	public SShot(int from, Vector position, Vector shotDir) {
-		super();
+	public SShot(ServerManager manager, int from, Vector position, Vector shotDir, int spawnTick, int rewind) {
+		super(manager.components);
 
+		this.manager = manager;
 		this.from = from;
+		this.spawnTick = spawnTick;
+		this.rewind = rewind;
 		
 		// set transform
 		this.transform.position = position.add(shotDir.scale(SPAWN_OFFSET));
-		this.transform.rotation = Math.atan2(shotDir.y, shotDir.x);
+		this.transform.rotation = StrictMath.atan2(shotDir.y, shotDir.x);
 		this.transform.scale = Vector.one();
 		
 		// set lifespan
@@ -73,15 +90,20 @@ public class SShot extends GameObject {
 		
 		// set the move vector
 		this.recoilVector = this.transform.up();
-		this.moveVector = recoilVector.scale(MOVE_SPEED);
+		this.moveVector = recoilVector.scale(getTickSpeed());
+		
+		// stores what clients need to simulate the shot themselves
+		this.origin = new Vector(this.transform.position);
+		this.direction = new Vector(this.recoilVector);
 		
 		// set how the player is affected
 		this.recoilVector = this.recoilVector.scale(RECOIL_MAGNITUDE);
 		this.recoilVector.negate();
 		
-		// sets the shots id, uses UUID for unique ids
-		this.id = UUID.randomUUID().toString();
-		this.trigger = new STriggerCollider(this, PIXEL_SIZE);
+		// sets the shots id, ids only need to be unique among the live shots
+		this.id = manager.nextShotId();
+		// the trigger is in the match's registry, and is updated with the shot on its tick
+		this.trigger = new STriggerCollider(this, manager.world, PIXEL_SIZE);
 	}
 
 	/**
@@ -94,21 +116,28 @@ public class SShot extends GameObject {
 		
 		// moves the shot
 		this.transform.position.translate(moveVector);
-		this.currentLifespan -= Game.FIXED_TIMESTEP;
+		this.currentLifespan -= Game.getFixedTimestep();
+		this.trigger.update();
+		
+		// checks the players where the shooter saw them, which is a little in the past
+		int hit = this.manager.lagCompensation.hit(
+				this.manager.getTick() - this.rewind,
+				this.transform.position.x, this.transform.position.y, PIXEL_SIZE.x / 2, this.from
+		);
+		
+		SPlayer target = this.manager.getPlayer(hit);
+		if (target != null) {
+			target.damage(DAMAGE, this.from);
+			target.body.addForce(this.recoilVector, ForceMode.IMPULSE);
+			return false;
+		}
 		
-		// checks if the trigger collider collided with a rigidbody
+		// checks if the trigger collider collided with a rigidbody,
+		// players have already been checked where they were
 		Rigidbody bodyTriggered;
 		if ((bodyTriggered = this.trigger.get()) != null) {
-			// checks if the body was kinematic
-			if (bodyTriggered.mode.isKinematic()) {
-				GameObject object = bodyTriggered.getHost();
-				
-				// checks if the host is an instance of server player
-				if (object instanceof SPlayer) {
-					SPlayer player = (SPlayer) object;
-					player.damage(DAMAGE, this.from);
-				}
-			}
+			GameObject object = bodyTriggered.getHost();
+			if (object instanceof SPlayer) return true;
 			
 			// adds recoil to the body
 			bodyTriggered.addForce(this.recoilVector, ForceMode.IMPULSE);
@@ -118,12 +147,57 @@ public class SShot extends GameObject {
 		return true;
 	}
 
+	/**
+	 * Gets how far a shot moves each tick.
+	 *
+	 * @return {double} the speed in pixels per tick
+	 */
+	public static double getTickSpeed() {
+		return MOVE_SPEED * Game.getFixedTimestep();
+	}
+
+	/**
+	 * Gets the origin.
+	 *
+	 * @return {Vector} where the shot was spawned
+	 */
+	public Vector getOrigin() {
+		return this.origin;
+	}
+
+	/**
+	 * Gets the direction.
+	 *
+	 * @return {Vector} the unit direction the shot travels in
+	 */
+	public Vector getDirection() {
+		return this.direction;
+	}
+
+	/**
+	 * Gets the player that fired the shot.
+	 *
+	 * @return {int} the id of the client which shot the bullet
+	 */
+	public int getFrom() {
+		return this.from;
+	}
+
+	/**
+	 * Gets the spawn tick.
+	 *
+	 * @return {int} the tick the shot was spawned on
+	 */
+	public int getSpawnTick() {
+		return this.spawnTick;
+	}
+
 	/**
 	 * Gets the id.
 	 *
-	 * @return {id} the id of this shot
+	 * @return {int} the id of this shot
 	 */
-	public String getId() {
+	public int getId() {
 		return id;
 	}
 }
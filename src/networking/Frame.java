@@ -0,0 +1,148 @@
+package networking;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The Class Frame, reads and writes length prefixed packets over a tcp stream.
+ * Each frame is an int header holding the length of the payload, then the payload.
+ * Large payloads are deflated, the top bit of the header marks them, and the
+ * uncompressed length follows the header so the reader can size its buffer.
+ *
+ * @author priyangkar ghosh
+ */
+public class Frame {
+
+	/** The Constant MAX_SIZE, the largest payload a frame can carry. */
+	public static final int MAX_SIZE = 64 * 1024;
+
+	/** The Constant COMPRESS_THRESHOLD, payloads at least this long are deflated. */
+	public static final int COMPRESS_THRESHOLD = 256;
+
+	/** The Constant COMPRESSED, the header bit marking a deflated payload. */
+	private static final int COMPRESSED = 1 << 31;
+
+	/** The stream frames are read from. */
+	private DataInputStream in;
+
+	/** The payload buffer, and the packet used as a view over it. */
+	private byte[] buffer = new byte[Packet.BUFFER_ALLOCATE];
+	private Packet packet = new Packet(this.buffer);
+
+	/** The buffer deflated payloads are read into before inflating. */
+	private byte[] compressed = new byte[Packet.BUFFER_ALLOCATE];
+
+	/** The inflater, reused for every compressed frame. */
+	private Inflater inflater = new Inflater();
+
+	/**
+	 * Instantiates a new frame reader.
+	 *
+	 * @param {InputStream} in - the stream to read from
+	 */
+	public Frame(InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+
+	/**
+	 * Blocks until a whole frame is read.
+	 *
+	 * @return {Packet} the packet, reused by the next read
+	 * @throws IOException Signals that the stream was closed or the frame is malformed.
+	 */
+	public Packet read() throws IOException {
+		int header = this.in.readInt();
+		int length = header & ~COMPRESSED;
+		if (length > MAX_SIZE) throw new IOException("Frame of " + length + " bytes is too large.");
+
+		// reads an uncompressed payload straight into the packet
+		if ((header & COMPRESSED) == 0) {
+			this.ensureCapacity(length);
+			this.in.readFully(this.buffer, 0, length);
+			this.packet.setReceived(Integer.BYTES + length);
+			return this.packet;
+		}
+
+		// otherwise reads the deflated payload, then inflates it into the packet
+		int size = this.in.readInt();
+		if (size < 0 || size > MAX_SIZE) throw new IOException("Frame of " + size + " bytes is too large.");
+
+		if (this.compressed.length < length) this.compressed = new byte[length];
+		this.in.readFully(this.compressed, 0, length);
+		this.ensureCapacity(size);
+
+		try {
+			this.inflater.reset();
+			this.inflater.setInput(this.compressed, 0, length);
+			if (this.inflater.inflate(this.buffer, 0, size) != size) throw new IOException("Frame was truncated.");
+		}
+
+		catch (DataFormatException e) {
+			throw new IOException("Frame could not be inflated.", e);
+		}
+
+		this.packet.setReceived(2 * Integer.BYTES + length);
+		return this.packet;
+	}
+
+	/**
+	 * Grows the payload buffer if a frame won't fit in it.
+	 *
+	 * @param {int} length - the length of the payload
+	 */
+	private void ensureCapacity(int length) {
+		if (this.buffer.length >= length) return;
+
+		this.buffer = new byte[length];
+		this.packet = new Packet(this.buffer);
+	}
+
+	/**
+	 * Writes a packet as one frame, then flushes the stream.
+	 * Only the bytes written to the packet are sent, deflated if it's large enough.
+	 *
+	 * @param {OutputStream} out - the stream to write to
+	 * @param {Packet} packet - the packet
+	 * @return {int} the bytes written, with the header
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static int write(OutputStream out, Packet packet) throws IOException {
+		byte[] payload = packet.getBuffer();
+		int size = packet.size(), length = size, header = size;
+
+		// deflates large payloads, keeping them as they are if it doesn't help
+		if (size >= COMPRESS_THRESHOLD) {
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			deflater.setInput(payload, 0, size);
+			deflater.finish();
+
+			byte[] deflated = new byte[size];
+			int n = deflater.deflate(deflated);
+			boolean smaller = deflater.finished() && n < size;
+			deflater.end();
+
+			if (smaller) {
+				payload = deflated;
+				length = n;
+				header = n | COMPRESSED;
+			}
+		}
+
+		// different threads send to the same stream, so each frame is written whole
+		synchronized (out) {
+			DataOutputStream data = new DataOutputStream(out);
+			data.writeInt(header);
+			if ((header & COMPRESSED) != 0) data.writeInt(size);
+			data.write(payload, 0, length);
+			data.flush();
+		}
+
+		return ((header & COMPRESSED) != 0 ? 2 : 1) * Integer.BYTES + length;
+	}
+}
@@ -0,0 +1,147 @@
+package networking;
+
+/**
+ * The Class Latency, a smoothed round trip time and jitter estimate for one connection.
+ * Each ping that comes back is a sample, smoothed the same way tcp estimates its
+ * retransmission timeout, so one slow packet doesn't swing the estimate.
+ *
+ * @author priyangkar ghosh
+ */
+public class Latency {
+
+	/** The Constant PING_INTERVAL, the ticks between pings. */
+	public static final int PING_INTERVAL = 22;
+
+	/** The Constant RTT_GAIN, how much of each sample goes into the smoothed rtt. */
+	private static final double RTT_GAIN = 1d / 8;
+
+	/** The Constant JITTER_GAIN, how much of each deviation goes into the jitter. */
+	private static final double JITTER_GAIN = 1d / 4;
+
+	/** The Constant LOSS_GAIN, how much each ping that did or didn't come back moves the loss rate. */
+	private static final double LOSS_GAIN = 1d / 8;
+
+	/** The Constant NANOS_PER_MILLI. */
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	/** The smoothed round trip time and jitter, in milliseconds. */
+	private volatile double rtt, jitter;
+
+	/** The last round trip time measured, in milliseconds. */
+	private volatile double last;
+
+	/** The lowest round trip time measured, the delay with nothing queued. */
+	private volatile double min = Double.MAX_VALUE;
+
+	/** The smoothed fraction of pings that didn't come back. */
+	private volatile double loss = 0;
+
+	/** If the last ping sent hasn't come back yet. */
+	private boolean awaiting = false;
+
+	/** The number of samples so far. */
+	private volatile int samples = 0;
+
+	/**
+	 * Records a ping being sent, the previous one is counted as lost if it never came back.
+	 */
+	public synchronized void pinged() {
+		if (this.awaiting) this.loss += LOSS_GAIN * (1 - this.loss);
+		this.awaiting = true;
+	}
+
+	/**
+	 * Adds a sample from a ping that came back.
+	 *
+	 * @param {long} sentNanos - the time the ping was sent, from {@link System#nanoTime()}
+	 * @return {double} the round trip time of this sample, in milliseconds
+	 */
+	public synchronized double sample(long sentNanos) {
+		double sample = (System.nanoTime() - sentNanos) / NANOS_PER_MILLI;
+		if (sample < 0) return this.rtt;
+
+		// the first sample sets the estimate outright
+		if (this.samples++ == 0) {
+			this.rtt = sample;
+			this.jitter = sample / 2;
+		}
+
+		else {
+			this.jitter += JITTER_GAIN * (Math.abs(this.rtt - sample) - this.jitter);
+			this.rtt += RTT_GAIN * (sample - this.rtt);
+		}
+
+		// a pong counts as received even if it came back after the next ping
+		if (this.awaiting) this.loss -= LOSS_GAIN * this.loss;
+		this.awaiting = false;
+
+		this.min = Math.min(this.min, sample);
+		this.last = sample;
+		return sample;
+	}
+
+	/**
+	 * Gets the smoothed round trip time.
+	 *
+	 * @return {double} the rtt in milliseconds
+	 */
+	public double getRtt() {
+		return this.rtt;
+	}
+
+	/**
+	 * Gets the jitter, the smoothed deviation of the round trip time.
+	 *
+	 * @return {double} the jitter in milliseconds
+	 */
+	public double getJitter() {
+		return this.jitter;
+	}
+
+	/**
+	 * Gets the last round trip time measured.
+	 *
+	 * @return {double} the rtt in milliseconds
+	 */
+	public double getLast() {
+		return this.last;
+	}
+
+	/**
+	 * Gets the queuing delay, how far the smoothed rtt is above the lowest one.
+	 * Grows as packets back up somewhere between the two ends.
+	 *
+	 * @return {double} the delay in milliseconds
+	 */
+	public double getQueueDelay() {
+		return (this.samples == 0) ? 0 : Math.max(0, this.rtt - this.min);
+	}
+
+	/**
+	 * Gets the loss rate.
+	 *
+	 * @return {double} the smoothed fraction of pings lost, from 0 to 1
+	 */
+	public double getLoss() {
+		return this.loss;
+	}
+
+	/**
+	 * Gets the number of samples.
+	 *
+	 * @return {int} the samples
+	 */
+	public int getSamples() {
+		return this.samples;
+	}
+
+	/**
+	 * Formats the estimate for logging.
+	 *
+	 * @return {String} the estimate
+	 */
+	@Override
+	public String toString() {
+		return String.format("rtt %.1fms, jitter %.1fms, loss %.0f%%, %d samples", this.rtt, this.jitter, this.loss * 100, this.samples);
+	}
+}
@@ -15,42 +15,124 @@ public class Packet {
 	/** The Constant BUFFER_ALLOCATE. */
 	public static final int BUFFER_ALLOCATE = 1024;
 
+	/**
+	 * The field types a packet can be made of, used to declare the layout
+	 * of each packet once so both ends of the connection agree on it.
+	 */
+	public static enum Field {
+		/** A single byte boolean. */
+		BOOLEAN,
+
+		/** A 4 byte int. */
+		INT,
+
+		/** An 8 byte long. */
+		LONG,
+
+		/** An 8 byte double. */
+		DOUBLE,
+
+		/** Two doubles. */
+		VECTOR,
+
+		/** A length prefixed utf-8 string. */
+		STRING,
+
+		/** A position vector, rotation double and scale vector. */
+		TRANSFORM,
+
+		/** An int count, the fields after it repeat that many times, up to the next repeated field. */
+		REPEATED,
+	}
+
 	/**
 	 * Packets sent from server to client.
 	 */
 	public static enum Server {
 		/** The admit. */
-		ADMIT,
+		ADMIT(Field.INT, Field.STRING, Field.INT, Field.DOUBLE),
 
 		/** The validate. */
-		VALIDATE,
+		VALIDATE(Field.INT),
 
 		/** The player connected. */
-		PLAYER_CONNECTED,
+		PLAYER_CONNECTED(Field.INT, Field.STRING, Field.INT, Field.DOUBLE, Field.TRANSFORM),
 
 		/** The player disconnected. */
-		PLAYER_DISCONNECTED,
+		PLAYER_DISCONNECTED(Field.INT),
 
-		/** The player information. */
-		PLAYER_INFORMATION,
-
-		/** Bullet shot. */
-		SHOT_ADDED,
+		/** Bullet shot, the id, the shooter's id and the client tick it fired on, the spawn tick, origin, direction and speed. */
+		SHOT_ADDED(Field.INT, Field.INT, Field.INT, Field.INT, Field.VECTOR, Field.VECTOR, Field.DOUBLE),
 
 		/** Bullet removed. */
-		SHOT_REMOVED,
-
-		/** Bullet information. */
-		SHOT_INFORMATION,
+		SHOT_REMOVED(Field.INT),
 
 		/** Player killed packet. */
-		KILLED_PLAYER,
+		KILLED_PLAYER(Field.INT),
 
 		/**Server stopped packet. */
-		SERVER_STOPPED,
+		SERVER_STOPPED(),
+		
+		/**
+		 * The tick, the client's own player with the last client tick of input applied to it,
+		 * and the other players and asteroids chosen for this client this tick, with their velocities.
+		 */
+		SNAPSHOT(
+				Field.INT,
+				Field.INT, Field.DOUBLE, Field.BOOLEAN, Field.TRANSFORM, Field.VECTOR, Field.DOUBLE,
+				Field.REPEATED, Field.INT, Field.DOUBLE, Field.BOOLEAN, Field.TRANSFORM, Field.VECTOR, Field.DOUBLE,
+				Field.REPEATED, Field.INT, Field.TRANSFORM, Field.VECTOR, Field.DOUBLE
+		),
 		
-		/** Asteroid information packet. */
-		ASTEROID_INFORMATION,
+		/** An entity entered the client's view. */
+		ENTITY_ENTERED(Field.INT),
+		
+		/** An entity left the client's view. */
+		ENTITY_LEFT(Field.INT),
+		
+		/** A ping with the server's send time, echoed back by the client. */
+		PING(Field.LONG),
+		
+		/** The reply to a client's ping, its send time echoed back and the server's tick. */
+		PONG(Field.LONG, Field.INT),
+		
+		/** The whole world sent to a joining client, the tick, players, asteroids and live shots. */
+		WORLD_STATE(
+				Field.INT,
+				Field.REPEATED, Field.INT, Field.STRING, Field.INT, Field.DOUBLE, Field.TRANSFORM,
+				Field.REPEATED, Field.INT, Field.TRANSFORM, Field.VECTOR, Field.DOUBLE,
+				Field.REPEATED, Field.INT, Field.INT, Field.VECTOR, Field.VECTOR, Field.DOUBLE
+		),
+		
+		/** The round restarting in lockstep, the tick, the seed, the asteroids and every player in the order they're added. */
+		LOCKSTEP_START(Field.INT, Field.LONG, Field.INT, Field.REPEATED, Field.INT, Field.STRING, Field.INT),
+		
+		/** The commands that took effect on a lockstep tick, each with the player's id, then the clients simulate it. */
+		LOCKSTEP_INPUT(Field.INT, Field.REPEATED, Field.INT, Field.INT, Field.INT, Field.BOOLEAN, Field.BOOLEAN, Field.VECTOR, Field.DOUBLE),
+		
+		/** The hash of the server's world after a lockstep tick, for the clients to check theirs against. */
+		STATE_HASH(Field.INT, Field.LONG);
+
+		/** The layout of this packet, after its id. */
+		private final Field[] schema;
+
+		/**
+		 * Instantiates a new server packet type.
+		 *
+		 * @param {Field[]} schema - the schema
+		 */
+		private Server(Field... schema) {
+			this.schema = schema;
+		}
+
+		/**
+		 * Gets the schema.
+		 *
+		 * @return {Field[]} the fields of this packet, in order
+		 */
+		public Field[] schema() {
+			return this.schema;
+		}
 	}
 
 	/**
@@ -58,19 +140,82 @@ public class Packet {
 	 */
 	public static enum Client {
 
-		/** The admission received. */
-		ADMISSION_RECEIVED,
+		/** The admission received, the id, name, udp port, protocol version and interpolation delay. */
+		ADMISSION_RECEIVED(Field.INT, Field.STRING, Field.INT, Field.INT, Field.DOUBLE),
 
 		/** The client disconnected. */
-		CLIENT_DISCONNECTED,
+		CLIENT_DISCONNECTED(),
 
-		/** The player input. */
-		PLAYER_INPUT,
+		/** The player input, the client's id then the latest few commands, each with its sequence number, client tick, controls, mouse position and press offset. */
+		PLAYER_INPUT(Field.INT, Field.REPEATED, Field.INT, Field.INT, Field.BOOLEAN, Field.BOOLEAN, Field.VECTOR, Field.DOUBLE),
+		
+		/** A ping with the client's id and send time, echoed back by the server. */
+		PING(Field.INT, Field.LONG),
+		
+		/** The reply to the server's ping, the client's id and the server's send time echoed back. */
+		PONG(Field.INT, Field.LONG);
+
+		/** The layout of this packet, after its id. */
+		private final Field[] schema;
+
+		/**
+		 * Instantiates a new client packet type.
+		 *
+		 * @param {Field[]} schema - the schema
+		 */
+		private Client(Field... schema) {
+			this.schema = schema;
+		}
+
+		/**
+		 * Gets the schema.
+		 *
+		 * @return {Field[]} the fields of this packet, in order
+		 */
+		public Field[] schema() {
+			return this.schema;
+		}
+	}
+
+	/**
+	 * The protocol version, a hash of every packet name and schema.
+	 * Exchanged on admission so a client and server built from
+	 * different packet declarations refuse to talk to each other.
+	 */
+	public static final int PROTOCOL_VERSION = protocolHash();
+
+	/**
+	 * Hashes the packet declarations into the protocol version.
+	 *
+	 * @return {int} the hash
+	 */
+	private static int protocolHash() {
+		int hash = 17;
+		
+		// the order of the packets matters as their ordinal is their id
+		for (Server type : Server.values()) {
+			hash = 31 * hash + type.name().hashCode();
+			for (Field field : type.schema()) hash = 31 * hash + field.name().hashCode();
+		}
+		
+		for (Client type : Client.values()) {
+			hash = 31 * hash + type.name().hashCode();
+			for (Field field : type.schema()) hash = 31 * hash + field.name().hashCode();
+		}
+		
+		return hash;
 	}
 
 	/** The buffer of the packet. */
 	protected ByteBuffer buffer;
 
+	/** The type and layout this packet is written to, null if it was received. */
+	private Enum<?> type;
+	private Field[] schema;
+
+	/** The bytes this packet took on the wire, set when it's received. */
+	private int received = 0;
+
 	/**
 	 * Instantiates a new packet.
 	 */
@@ -85,6 +230,8 @@ public class Packet {
 	 */
 	public Packet(Client type) {
 		this.buffer = ByteBuffer.allocate(BUFFER_ALLOCATE);
+		this.type = type;
+		this.schema = type.schema();
 		write(type.ordinal());
 	}
 
@@ -94,7 +241,19 @@ public class Packet {
 	 * @param {Server} type - the type
 	 */
 	public Packet(Server type) {
-		this.buffer = ByteBuffer.allocate(BUFFER_ALLOCATE);
+		this(type, BUFFER_ALLOCATE);
+	}
+
+	/**
+	 * Instantiates a new packet larger than the default, for tcp frames.
+	 *
+	 * @param {Server} type - the type
+	 * @param {int} capacity - the capacity in bytes
+	 */
+	public Packet(Server type, int capacity) {
+		this.buffer = ByteBuffer.allocate(capacity);
+		this.type = type;
+		this.schema = type.schema();
 		write(type.ordinal());
 	}
 
@@ -125,6 +284,15 @@ public class Packet {
 		buffer.putInt(value);
 	}
 
+	/**
+	 * Write a long value.
+	 *
+	 * @param {long} value - the value
+	 */
+	public void write(long value) {
+		buffer.putLong(value);
+	}
+
 	/**
 	 * Write a double value.
 	 *
@@ -175,6 +343,15 @@ public class Packet {
 		write(transform.scale);
 	}
 
+	/**
+	 * Rewinds the packet to the start of its buffer.
+	 * Lets a receive thread keep one packet as a view over its buffer
+	 * instead of wrapping every datagram in a new packet.
+	 */
+	public void rewind() {
+		buffer.clear();
+	}
+
 	/**
 	 * Read boolean.
 	 *
@@ -193,6 +370,15 @@ public class Packet {
 		return buffer.getInt();
 	}
 
+	/**
+	 * Read long.
+	 *
+	 * @return {long} the long value
+	 */
+	public long readLong() {
+		return buffer.getLong();
+	}
+
 	/**
 	 * Read double.
 	 *
@@ -211,6 +397,15 @@ public class Packet {
 		return new Vector(readDouble(), readDouble());
 	}
 
+	/**
+	 * Reads a vector into an existing vector, without allocating.
+	 *
+	 * @param {Vector} out - the vector to read into
+	 */
+	public void readVector(Vector out) {
+		out.set(readDouble(), readDouble());
+	}
+
 	/**
 	 * Read string.
 	 *
@@ -231,6 +426,133 @@ public class Packet {
 		return new Transform(readVector(), readDouble(), readVector());
 	}
 
+	/**
+	 * Reads a transform into an existing transform, without allocating.
+	 *
+	 * @param {Transform} out - the transform to read into
+	 */
+	public void readTransform(Transform out) {
+		readVector(out.position);
+		out.rotation = readDouble();
+		readVector(out.scale);
+	}
+
+	/**
+	 * Reads an int at an offset, without moving the position.
+	 *
+	 * @param {int} offset - the offset in bytes, 0 is the packet id
+	 * @return {int} the int value
+	 */
+	public int peekInt(int offset) {
+		return buffer.getInt(offset);
+	}
+
+	/**
+	 * Checks that what has been written is laid out as the schema of its type declares,
+	 * so a codec that has drifted from the declaration is caught where it's sent.
+	 *
+	 * @return {boolean} true, if it matches or the packet was received
+	 */
+	public boolean matchesSchema() {
+		if (this.schema == null) return true;
+
+		// walks a view of what was written, after the packet id
+		ByteBuffer view = ByteBuffer.wrap(this.buffer.array(), 0, this.buffer.position());
+		view.position(Integer.BYTES);
+
+		try { return skip(view, this.schema, 0, this.schema.length) && !view.hasRemaining(); }
+
+		// the schema asked for more than was written
+		catch (RuntimeException e) { return false; }
+	}
+
+	/**
+	 * Skips over the fields of a schema.
+	 *
+	 * @param {ByteBuffer} view - the bytes, positioned at the first field
+	 * @param {Field[]} schema - the schema
+	 * @param {int} from - the first field to skip
+	 * @param {int} to - the field after the last one to skip
+	 * @return {boolean} true, if every field could be skipped
+	 */
+	private static boolean skip(ByteBuffer view, Field[] schema, int from, int to) {
+		for (int i = from; i < to; i++) {
+			switch (schema[i]) {
+				case BOOLEAN:
+					view.position(view.position() + 1);
+					break;
+				case INT:
+					view.position(view.position() + Integer.BYTES);
+					break;
+				case LONG:
+				case DOUBLE:
+					view.position(view.position() + Long.BYTES);
+					break;
+				case VECTOR:
+					view.position(view.position() + 2 * Double.BYTES);
+					break;
+				case TRANSFORM:
+					view.position(view.position() + 5 * Double.BYTES);
+					break;
+				case STRING:
+					int length = view.getInt();
+					if (length < 0) return false;
+					view.position(view.position() + length);
+					break;
+				case REPEATED:
+					// the fields up to the next repeated field are repeated by the count before them
+					int end = i + 1;
+					while (end < to && schema[end] != Field.REPEATED) end++;
+
+					int count = view.getInt();
+					if (count < 0) return false;
+					for (int c = 0; c < count; c++)
+						if (!skip(view, schema, i + 1, end)) return false;
+
+					i = end - 1;
+					break;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the type.
+	 *
+	 * @return {Enum<?>} the type this packet is written to, or null if it was received
+	 */
+	public Enum<?> getType() {
+		return this.type;
+	}
+
+	/**
+	 * Sets the bytes this packet took on the wire.
+	 *
+	 * @param {int} received - the bytes
+	 */
+	public void setReceived(int received) {
+		this.received = received;
+	}
+
+	/**
+	 * Gets the bytes this packet took on the wire.
+	 *
+	 * @return {int} the bytes
+	 */
+	public int getReceived() {
+		return this.received;
+	}
+
+	/**
+	 * Gets the number of bytes written so far.
+	 *
+	 * @return {int} the size of the packet
+	 */
+	public int size() {
+		return buffer.position();
+	}
+
 	/**
 	 * Gets the buffer.
 	 *
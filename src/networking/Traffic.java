@@ -0,0 +1,175 @@
+package networking;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class Traffic, counts the packets and bytes of each type of packet to or from each peer.
+ * Every receive thread and the tick thread count into the same table, so the counters
+ * are long adders, which spread contended increments across cells instead of one field.
+ *
+ * @author priyangkar ghosh
+ */
+public class Traffic {
+
+	/** The name of what is being counted, for the dump. */
+	private String name;
+
+	/** The packet types being counted, indexed by their id. */
+	private Enum<?>[] types;
+
+	/** The number of peers, one more slot is kept for packets from an unknown peer. */
+	private int peers;
+
+	/** The packets and bytes of each type for each peer, indexed by type then peer. */
+	private LongAdder[] packets, bytes;
+
+	/**
+	 * Instantiates a new traffic table.
+	 *
+	 * @param {String} name - the name, such as "server sent"
+	 * @param {Enum<?>[]} types - the packet types
+	 * @param {int} peers - the number of peers
+	 */
+	public Traffic(String name, Enum<?>[] types, int peers) {
+		this.name = name;
+		this.types = types;
+		this.peers = peers;
+
+		int size = types.length * (peers + 1);
+		this.packets = new LongAdder[size];
+		this.bytes = new LongAdder[size];
+
+		for (int i = 0; i < size; i++) {
+			this.packets[i] = new LongAdder();
+			this.bytes[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Counts a packet.
+	 *
+	 * @param {int} type - the packet id
+	 * @param {int} peer - the peer it was sent to or received from, out of range if unknown
+	 * @param {int} size - the bytes on the wire
+	 */
+	public void record(int type, int peer, int size) {
+		if (type < 0 || type >= this.types.length) return;
+
+		int i = this.index(type, peer);
+		this.packets[i].increment();
+		this.bytes[i].add(size);
+	}
+
+	/**
+	 * Gets the slot of a type and peer.
+	 *
+	 * @param {int} type - the packet id
+	 * @param {int} peer - the peer
+	 * @return {int} the index into the counters
+	 */
+	private int index(int type, int peer) {
+		if (peer < 0 || peer >= this.peers) peer = this.peers;
+		return type * (this.peers + 1) + peer;
+	}
+
+	/**
+	 * Gets the packets of a type to or from one peer.
+	 *
+	 * @param {int} type - the packet id
+	 * @param {int} peer - the peer
+	 * @return {long} the packets
+	 */
+	public long getPackets(int type, int peer) {
+		return this.packets[this.index(type, peer)].sum();
+	}
+
+	/**
+	 * Gets the bytes of a type to or from one peer.
+	 *
+	 * @param {int} type - the packet id
+	 * @param {int} peer - the peer
+	 * @return {long} the bytes
+	 */
+	public long getBytes(int type, int peer) {
+		return this.bytes[this.index(type, peer)].sum();
+	}
+
+	/**
+	 * Gets the packets of a type to or from every peer.
+	 *
+	 * @param {int} type - the packet id
+	 * @return {long} the packets
+	 */
+	public long getPackets(int type) {
+		long total = 0;
+		for (int peer = 0; peer <= this.peers; peer++) total += this.packets[type * (this.peers + 1) + peer].sum();
+		return total;
+	}
+
+	/**
+	 * Gets the bytes of a type to or from every peer.
+	 *
+	 * @param {int} type - the packet id
+	 * @return {long} the bytes
+	 */
+	public long getBytes(int type) {
+		long total = 0;
+		for (int peer = 0; peer <= this.peers; peer++) total += this.bytes[type * (this.peers + 1) + peer].sum();
+		return total;
+	}
+
+	/**
+	 * Gets the bytes of every type.
+	 *
+	 * @return {long} the bytes
+	 */
+	public long getBytes() {
+		long total = 0;
+		for (LongAdder adder : this.bytes) total += adder.sum();
+		return total;
+	}
+
+	/**
+	 * Resets every counter.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.packets.length; i++) {
+			this.packets[i].reset();
+			this.bytes[i].reset();
+		}
+	}
+
+	/**
+	 * Prints the packets and bytes of each type, biggest share of the bytes first,
+	 * then the bytes of each peer.
+	 */
+	public void dump() {
+		long total = Math.max(1, this.getBytes());
+		System.out.printf("[TRAFFIC] %s, %d bytes\n", this.name, this.getBytes());
+
+		// sorts the types by their bytes
+		Integer[] order = new Integer[this.types.length];
+		for (int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> Long.compare(this.getBytes(b), this.getBytes(a)));
+
+		for (int type : order) {
+			long packets = this.getPackets(type);
+			if (packets == 0) continue;
+
+			long bytes = this.getBytes(type);
+			System.out.printf("[TRAFFIC]   %-20s %8d packets %10d bytes %5.1f%%\n",
+					this.types[type], packets, bytes, 100d * bytes / total);
+		}
+
+		// the bytes of each peer that was counted
+		for (int peer = 0; peer <= this.peers; peer++) {
+			long bytes = 0;
+			for (int type = 0; type < this.types.length; type++) bytes += this.getBytes(type, peer);
+			if (bytes == 0) continue;
+
+			String label = (peer == this.peers) ? "unknown" : String.valueOf(peer);
+			System.out.printf("[TRAFFIC]   peer %-15s %10d bytes %5.1f%%\n", label, bytes, 100d * bytes / total);
+		}
+	}
+}
@@ -12,6 +12,8 @@ import java.util.Base64;
 import framework.common.InputManager;
 import game.PlayerPrefs;
 import gameobjects.CPlayer;
+import networking.Frame;
+import networking.Latency;
 import networking.Packet;
 
 /**
@@ -30,10 +32,17 @@ public class CClient implements Runnable {
 
 	/** The outstanding ticks. */
 	private int ticks = 0;
+	
+	/** The ticks this client has run. */
+	private int clientTick = 0;
 
 	/** If the client is active. */
 	private volatile boolean active = false;
 
+	/** The round trip time to the server, and the estimate of its tick. */
+	public Latency latency = new Latency();
+	public ServerClock clock = new ServerClock();
+
 	/** The player and input manager. */
 	public CPlayer player;	
 	public InputManager input;
@@ -146,19 +155,29 @@ public class CClient implements Runnable {
 			catch (Exception e) {  }
 
 			while (this.ticks > 0) {
+				this.clientTick++;
 				this.updateClientInput();
+				
+				// measures the round trip to the server every so often
+				if (this.clientTick % Latency.PING_INTERVAL == 0 && this.id != -1) {
+					this.latency.pinged();
+					ClientSend.ping();
+				}
 				this.ticks--;
 			}
 		}
 	}
 
 	/**
-	 * Updates client input.
+	 * Updates client input, only sending it if it changed or the keepalive is due.
 	 */
 	public void updateClientInput() {
 		if (this.input == null) return;
 		this.input.updateMousePosition();
-		ClientSend.playerInput();
+		if (this.input.record(this.clientTick)) ClientSend.playerInput();
+		
+		// moves the local player straight away, rather than waiting for the server
+		ClientManager.predict(this.clientTick, this.input);
 	}
 
 	/**
@@ -189,7 +208,7 @@ public class CClient implements Runnable {
 		this.input = null;
 		
 		// destroys the player object then sets it to null
-		this.player.destroy();
+		if (this.player != null) this.player.destroy();
 		this.player = null;
 
 		try {
@@ -218,6 +237,13 @@ public class CClient implements Runnable {
 		
 		// resets the client manager
 		ClientManager.reset();
+		System.out.println("[CLIENT] Server had " + this.latency);
+		
+		// dumps where the bandwidth went, then starts counting afresh
+		ClientSend.SENT.dump();
+		ClientHandle.RECEIVED.dump();
+		ClientSend.SENT.reset();
+		ClientHandle.RECEIVED.reset();
 		System.out.println("[CLIENT] Client disconnected");
 	}
 
@@ -266,20 +292,21 @@ public class CClient implements Runnable {
 		@Override
 		public void run() {
 			this.running = true;
+			
+			// reads the framed packets, reusing one buffer for every read
+			Frame frame = new Frame(this.in);
 
 			while (this.running) {
 				try {
-					// blocks till there's a buffer to read
-					byte[] buffer = new byte[Packet.BUFFER_ALLOCATE];
-					
-					// reads the buffer and then handles it
-					in.read(buffer);
-					ClientHandle.handle(buffer);
+					// blocks till there's a whole frame to read
+					// then handles it
+					ClientHandle.handle(frame.read());
 				}
 
 				catch (IOException e) {
 					// if there's an exception, that means the tcp is disconnected
 					System.out.println("[CLIENT] TCP disconnected. ");
+					this.running = false;
 				}
 			}
 		}
@@ -311,18 +338,22 @@ public class CClient implements Runnable {
 		@Override
 		public void run() {
 			this.running = true;
+			
+			// allocates the buffer once, and reuses it for every datagram
+			byte[] buffer = new byte[Packet.BUFFER_ALLOCATE];
+			Packet packet = new Packet(buffer);
+			DatagramPacket datagramPacket = new DatagramPacket(
+					buffer, Packet.BUFFER_ALLOCATE
+			);
 
 			while (this.running) {
 				try {
 					// receives and udp packets from the server
-					byte[] buffer = new byte[Packet.BUFFER_ALLOCATE];
-					DatagramPacket datagramPacket = new DatagramPacket(
-							buffer, Packet.BUFFER_ALLOCATE
-					);
-					
 					// handles the packet if when received
+					datagramPacket.setLength(buffer.length);
 					this.socket.receive(datagramPacket);
-					ClientHandle.handle(buffer);
+					packet.setReceived(datagramPacket.getLength());
+					ClientHandle.handle(packet);
 				}
 
 				catch (IOException e) {
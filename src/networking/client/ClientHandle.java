@@ -3,9 +3,12 @@ package networking.client;
 import javax.swing.JOptionPane;
 
 import framework.audio.AudioManager;
+import framework.common.InputManager.Controls;
 import framework.common.Transform;
+import framework.math.Vector;
 import networking.Packet;
-import scenes.GameScene;
+import networking.Traffic;
+import networking.server.Server;
 import scenes.PlayScene;
 import scenes.Scene;
 
@@ -16,50 +19,74 @@ import scenes.Scene;
  */
 public class ClientHandle {
 
+	/**
+	 * A handler for one type of packet.
+	 */
+	@FunctionalInterface
+	private static interface Handler {
+		/**
+		 * Handles the packet.
+		 *
+		 * @param {Packet} packet - the packet, positioned after its id
+		 */
+		void handle(Packet packet);
+	}
+
+	/** Transform the remote entities are read into before being buffered. */
+	private static final Transform UPDATE = new Transform();
+	
+	/** The server's state of the client's own player, read from each snapshot. */
+	private static final Transform SELF = new Transform();
+	private static final Vector SELF_VELOCITY = Vector.zero();
+
+	/** The controls of each lockstep command are read into this. */
+	private static final boolean[] CONTROLS = new boolean[Controls.values().length];
+
+	/** The packets and bytes received from the server, by type. */
+	public static final Traffic RECEIVED = new Traffic("client received", Packet.Server.values(), 1);
+
+	/** The handlers, indexed by the packet id. */
+	private static final Handler[] HANDLERS = new Handler[Packet.Server.values().length];
+
+	static {
+		HANDLERS[Packet.Server.ADMIT.ordinal()] = ClientHandle::admit;
+		HANDLERS[Packet.Server.VALIDATE.ordinal()] = ClientHandle::validateUDP;
+		HANDLERS[Packet.Server.PLAYER_CONNECTED.ordinal()] = ClientHandle::playerConnected;
+		HANDLERS[Packet.Server.PLAYER_DISCONNECTED.ordinal()] = ClientHandle::playerDisconnected;
+		HANDLERS[Packet.Server.SHOT_ADDED.ordinal()] = ClientHandle::shotAdded;
+		HANDLERS[Packet.Server.SHOT_REMOVED.ordinal()] = ClientHandle::shotRemoved;
+		HANDLERS[Packet.Server.KILLED_PLAYER.ordinal()] = ClientHandle::killedPlayer;
+		HANDLERS[Packet.Server.SERVER_STOPPED.ordinal()] = ClientHandle::serverStopped;
+		HANDLERS[Packet.Server.SNAPSHOT.ordinal()] = ClientHandle::snapshot;
+		HANDLERS[Packet.Server.ENTITY_ENTERED.ordinal()] = ClientHandle::entityEntered;
+		HANDLERS[Packet.Server.ENTITY_LEFT.ordinal()] = ClientHandle::entityLeft;
+		HANDLERS[Packet.Server.WORLD_STATE.ordinal()] = ClientHandle::worldState;
+		HANDLERS[Packet.Server.PING.ordinal()] = ClientHandle::ping;
+		HANDLERS[Packet.Server.PONG.ordinal()] = ClientHandle::pong;
+		HANDLERS[Packet.Server.LOCKSTEP_START.ordinal()] = ClientHandle::lockstepStart;
+		HANDLERS[Packet.Server.LOCKSTEP_INPUT.ordinal()] = ClientHandle::lockstepInput;
+		HANDLERS[Packet.Server.STATE_HASH.ordinal()] = ClientHandle::stateHash;
+		
+		// every packet the server can send must be handled
+		for (Packet.Server type : Packet.Server.values())
+			if (HANDLERS[type.ordinal()] == null)
+				throw new IllegalStateException("No client handler for " + type);
+	}
+
 	/**
 	 * Handles packet based on the packet id.
 	 *
-	 * @param {byte[]} buffer - the buffer
-	 */
-	public static void handle(byte[] buffer) {
-		Packet packet = new Packet(buffer);
-		
-		// gets the packet id, then calls the corresponding function
-		switch (packet.readInt()) {
-			case 0:
-				admit(packet);
-				break;
-			case 1:
-				validateUDP(packet);
-				break;
-			case 2:
-				playerConnected(packet);
-				break;
-			case 3:
-				playerDisconnected(packet);
-				break;
-			case 4:
-				playerInformation(packet);
-				break;
-			case 5:
-				shotAdded(packet);
-				break;
-			case 6:
-				shotRemoved(packet);
-				break;
-			case 7:
-				shotInformation(packet);
-				break;
-			case 8:
-				killedPlayer(packet);
-				break;
-			case 9:
-				serverStopped(packet);
-			case 10:
-				asteroidInformation(packet);
-			default:
-				break;
-		}
+	 * @param {Packet} packet - the packet, reused by the receiving thread
+	 */
+	public static void handle(Packet packet) {
+		packet.rewind();
+		
+		// gets the packet id, then calls the corresponding handler
+		int type = packet.readInt();
+		if (type < 0 || type >= HANDLERS.length) return;
+		
+		RECEIVED.record(type, 0, packet.getReceived());
+		HANDLERS[type].handle(packet);
 	}
 
 	/**
@@ -74,6 +101,19 @@ public class ClientHandle {
 		// reads the packet content
 		int id = packet.readInt();
 		String msg = packet.readString();
+		int protocol = packet.readInt();
+		
+		// refuses servers that were built with a different set of packets
+		if (protocol != Packet.PROTOCOL_VERSION) {
+			System.out.printf("[CLIENT] Protocol mismatch, server %08x, client %08x\n", protocol, Packet.PROTOCOL_VERSION);
+			CClient.instance().disconnect();
+			Scene.load(new PlayScene());
+			JOptionPane.showMessageDialog(null, "Server is running a different version.");
+			return;
+		}
+		
+		// steps the game at the server's tick rate
+		ClientManager.setFixedTimestep(packet.readDouble());
 		
 		// sets the clients id and the server message
 		CClient.instance().id = id;
@@ -138,61 +178,209 @@ public class ClientHandle {
 	}
 
 	/**
-	 * Player information.
+	 * Snapshot of the players and asteroids the server had room for.
 	 *
 	 * @param {Packet} packet - the packet
 	 */
-	private static void playerInformation(Packet packet) {
-		// read the packet contents
-		int id = packet.readInt();
-		double health = packet.readDouble();
-		boolean isShooting = packet.readBoolean();
-		Transform transform = packet.readTransform();
+	private static void snapshot(Packet packet) {
+		// snapshots before the world state are already part of it
+		int tick = packet.readInt();
+		if (!ClientManager.acceptsSnapshot(tick)) return;
+		
+		ClientManager.setServerTick(tick);
+		
+		// reads the client's own player, the prediction is rewound to it
+		int acknowledged = packet.readInt();
+		double selfHealth = packet.readDouble();
+		boolean selfShooting = packet.readBoolean();
+		packet.readTransform(SELF);
+		packet.readVector(SELF_VELOCITY);
+		packet.readDouble();
 		
-		// updates the player contents
-		ClientManager.updatePlayer(id, health, isShooting, transform);
+		int self = CClient.instance().id;
+		ClientManager.reconcile(acknowledged, SELF, SELF_VELOCITY);
+		ClientManager.updatePlayer(self, selfHealth, selfShooting);
+		
+		int players = packet.readInt();
+		
+		for (int i = 0; i < players; i++) {
+			// read the player contents
+			int id = packet.readInt();
+			double health = packet.readDouble();
+			boolean isShooting = packet.readBoolean();
+			
+			// buffers the state, the player is shown a little behind it
+			packet.readTransform(UPDATE);
+			ClientManager.addUpdate(id, tick, UPDATE, packet.readDouble(), packet.readDouble(), packet.readDouble());
+			
+			// updates the player contents
+			ClientManager.updatePlayer(id, health, isShooting);
+		}
+		
+		int asteroids = packet.readInt();
+		
+		// buffers each asteroid's state, they're shown a little behind it
+		for (int i = 0; i < asteroids; i++) {
+			int index = packet.readInt();
+			packet.readTransform(UPDATE);
+			ClientManager.addUpdate(Server.MAX_PLAYERS + index, tick, UPDATE, packet.readDouble(), packet.readDouble(), packet.readDouble());
+		}
 	}
 
 	/**
-	 * Shot added.
+	 * Ping from the server, replied to straight away.
 	 *
 	 * @param {Packet} packet - the packet
 	 */
-	private static void shotAdded(Packet packet) {
-		// reads the packet contents
-		String id = packet.readString();
-		Transform transform = packet.readTransform();
+	private static void ping(Packet packet) {
+		ClientSend.pong(packet.readLong());
+	}
+	
+	/**
+	 * Pong from the server, the round trip of this client's ping and the server's tick.
+	 *
+	 * @param {Packet} packet - the packet
+	 */
+	private static void pong(Packet packet) {
+		long time = packet.readLong();
+		int tick = packet.readInt();
 		
-		// adds the new shot
-		ClientManager.addShot(id, transform);
-		AudioManager.play("shoot", false);
+		// samples the round trip, then corrects the estimate of the server's tick with it
+		CClient client = CClient.instance();
+		double rtt = client.latency.sample(time);
+		client.clock.sync(tick, rtt);
 	}
 
 	/**
-	 * Shot removed.
+	 * World state, the whole world when joining, applied before any snapshot is accepted.
 	 *
 	 * @param {Packet} packet - the packet
 	 */
-	private static void shotRemoved(Packet packet) {
+	private static void worldState(Packet packet) {
+		int tick = packet.readInt();
+		ClientManager.setServerTick(tick);
+		
+		// adds every player already in the game, and this one
+		int players = packet.readInt();
+		for (int i = 0; i < players; i++) {
+			int id = packet.readInt();
+			String name = packet.readString();
+			int kills = packet.readInt();
+			double health = packet.readDouble();
+			Transform transform = packet.readTransform();
+			
+			ClientManager.addPlayer(id, name, kills, health, transform);
+		}
+		
+		// places every asteroid, and how it's moving
+		int asteroids = packet.readInt();
+		for (int i = 0; i < asteroids; i++) {
+			int index = packet.readInt();
+			packet.readTransform(UPDATE);
+			ClientManager.addUpdate(Server.MAX_PLAYERS + index, tick, UPDATE, packet.readDouble(), packet.readDouble(), packet.readDouble());
+		}
+		
+		// adds the shots in flight, caught up to the tick
+		int shots = packet.readInt();
+		for (int i = 0; i < shots; i++) {
+			int id = packet.readInt();
+			int spawnTick = packet.readInt();
+			Vector origin = packet.readVector();
+			Vector direction = packet.readVector();
+			ClientManager.addShot(id, -1, 0, spawnTick, origin, direction, packet.readDouble());
+		}
+		
+		// snapshots are only applied from here on
+		ClientManager.joined(tick);
+		System.out.printf("[CLIENT] Joined at tick %d with %d players and %d shots\n", tick, players, shots);
+	}
+
+	/**
+	 * Lockstep round started, the seed and the players to rebuild the simulation with.
+	 *
+	 * @param {Packet} packet - the packet
+	 */
+	private static void lockstepStart(Packet packet) {
+		int tick = packet.readInt();
+		long seed = packet.readLong();
+		int asteroids = packet.readInt();
+		
+		int count = packet.readInt();
+		int[] ids = new int[count], kills = new int[count];
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = packet.readInt();
+			names[i] = packet.readString();
+			kills[i] = packet.readInt();
+		}
+		
+		ClientManager.startLockstep(tick, seed, asteroids, ids, names, kills, count);
+	}
+	
+	/**
+	 * Lockstep input, the commands that took effect on a tick, then the tick is simulated.
+	 *
+	 * @param {Packet} packet - the packet
+	 */
+	private static void lockstepInput(Packet packet) {
+		int tick = packet.readInt();
+		
+		int count = packet.readInt();
+		for (int i = 0; i < count; i++) {
+			int id = packet.readInt();
+			int sequence = packet.readInt();
+			int clientTick = packet.readInt();
+			for (int c = 0; c < CONTROLS.length; c++) CONTROLS[c] = packet.readBoolean();
+			Vector mouse = packet.readVector();
+			
+			ClientManager.lockstepInput(id, sequence, clientTick, CONTROLS, mouse, packet.readDouble());
+		}
+		
+		ClientManager.lockstepTick(tick);
+	}
+	
+	/**
+	 * State hash, the server's world after a lockstep tick.
+	 *
+	 * @param {Packet} packet - the packet
+	 */
+	private static void stateHash(Packet packet) {
+		int tick = packet.readInt();
+		ClientManager.checkState(tick, packet.readLong());
+	}
+
+	/**
+	 * Shot added.
+	 *
+	 * @param {Packet} packet - the packet
+	 */
+	private static void shotAdded(Packet packet) {
 		// reads the packet contents
-		String id = packet.readString();
+		int id = packet.readInt();
+		int from = packet.readInt();
+		int clientTick = packet.readInt();
+		int spawnTick = packet.readInt();
+		Vector origin = packet.readVector();
+		Vector direction = packet.readVector();
+		double speed = packet.readDouble();
 		
-		// removes the corresponding shot
-		ClientManager.removeShot(id);
+		// adds the new shot, the client simulates it from here,
+		// the local player's own shots already played their sound when predicted
+		if (ClientManager.addShot(id, from, clientTick, spawnTick, origin, direction, speed))
+			AudioManager.play("shoot", false);
 	}
 
 	/**
-	 * Shot information.
+	 * Shot removed.
 	 *
 	 * @param {Packet} packet - the packet
 	 */
-	private static void shotInformation(Packet packet) {
-		// read the packet contents
-		String id = packet.readString();
-		Transform transform = packet.readTransform();
+	private static void shotRemoved(Packet packet) {
+		// reads the packet contents
+		int id = packet.readInt();
 		
-		// update the corresponding shot
-		ClientManager.updateShot(id, transform);
+		// removes the corresponding shot
+		ClientManager.removeShot(id);
 	}
 
 	/**
@@ -221,12 +409,20 @@ public class ClientHandle {
 	}
 	
 	/**
-	 * Updated asteroid information.
+	 * An entity entered the view.
+	 *
+	 * @param {Packet} packet - the packet
+	 */
+	private static void entityEntered(Packet packet) {
+		ClientManager.setRelevant(packet.readInt(), true);
+	}
+	
+	/**
+	 * An entity left the view.
 	 *
 	 * @param {Packet} packet - the packet
 	 */
-	private static void asteroidInformation(Packet packet) {
-		for (int i = 0; i < GameScene.NUM_OF_ASTEROIDS; i++)
-			ClientManager.updateAsteroid(i, packet.readTransform());
+	private static void entityLeft(Packet packet) {
+		ClientManager.setRelevant(packet.readInt(), false);
 	}
 }
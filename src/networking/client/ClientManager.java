@@ -1,14 +1,26 @@
 package networking.client;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
+import framework.audio.AudioManager;
 import framework.common.GameObject;
 import framework.common.InputManager;
 import framework.common.Transform;
+import framework.components.Component;
+import framework.components.Renderer;
 import framework.components.SpriteRenderer;
+import framework.math.Vector;
+import game.Game;
+import game.PlayerPrefs;
 import gameobjects.CPlayer;
 import gameobjects.CShot;
+import gameobjects.SPlayer;
+import gameobjects.SShot;
+import networking.server.CommandQueue;
+import networking.server.DeadReckoning;
 import networking.server.Server;
+import networking.server.ServerManager;
+import networking.server.WorldCapture;
 import scenes.GameScene;
 
 /**
@@ -21,22 +33,90 @@ public class ClientManager {
 	/** The players. */
 	public static CPlayer[] players = new CPlayer[Server.MAX_PLAYERS];
 	
-	/** The shots. */
-	private static HashMap<String, CShot> shots = new HashMap<>();
+	/** The maximum number of shots that can be alive at once, a power of two. */
+	private static final int MAX_SHOTS = 256;
+	
+	/** The shots, stored in the slot given by their id. */
+	private static CShot[] shots = new CShot[MAX_SHOTS];
+	
+	/** The maximum number of predicted shots waiting for the server, a power of two. */
+	private static final int MAX_PREDICTED = 32;
+	
+	/** The Constant MATCH_WINDOW, how many client ticks apart a predicted shot and the server's can be and still match. */
+	public static final int MATCH_WINDOW = 4;
+	
+	/** The Constant CONFIRM_TICKS, how many client ticks past being acknowledged a predicted shot waits for the server's. */
+	public static final int CONFIRM_TICKS = 10;
+	
+	/** The shots the local player fired that the server hasn't confirmed, in the slot given by the client tick they were fired on. */
+	private static CShot[] predicted = new CShot[MAX_PREDICTED];
+	private static int[] predictedTicks = new int[MAX_PREDICTED];
 	
 	/** The asteroids. */
 	public static GameObject[] asteroids = new GameObject[GameScene.NUM_OF_ASTEROIDS];
 	
+	/** The tick of the latest snapshot from the server. */
+	private static volatile int serverTick = 0;
+	
+	/** The tick of the world state sent on joining, or -1 before it arrives. */
+	private static volatile int joinTick = -1;
+	
+	/** The Constant DEFAULT_INTERPOLATION_DELAY, how far behind the server remote entities are shown, in milliseconds. */
+	public static final double DEFAULT_INTERPOLATION_DELAY = 100;
+	
+	/** The updates of each remote entity, players take the first indices and asteroids the rest. */
+	private static Interpolation interpolation = new Interpolation(Server.MAX_PLAYERS + GameScene.NUM_OF_ASTEROIDS);
+	
+	/** How far behind the server remote entities are shown, in ticks. */
+	private static double interpolationDelay;
+	
+	/** The latest health and shooting of each player. */
+	private static PlayerStatus status = new PlayerStatus();
+	
+	/** The prediction of the local player's movement. */
+	private static volatile Prediction prediction;
+	
+	/** If each entity is in view, players take the first indices and asteroids the rest. */
+	private static boolean[] relevant = new boolean[Server.MAX_PLAYERS + GameScene.NUM_OF_ASTEROIDS];
+	
+	/** If the server is in lockstep, the world is shown from the simulation instead of snapshots. */
+	private static volatile boolean lockstep = false;
+	
+	/** If this client runs its own copy of the lockstep simulation, as it isn't hosting it. */
+	private static volatile boolean replica = false;
+	
+	/** The lockstep simulation being shown, the hosted room's or this client's own copy. */
+	private static volatile ServerManager simulation;
+	
+	/**
+	 * What the server sent about the lockstep round, applied by the game loop in the order it arrived,
+	 * so the copy of the simulation is only ever ticked and shown on the one thread.
+	 */
+	private static CommandQueue lockstepCommands = new CommandQueue();
+	
+	/** The number of times the client manager was reset, what was queued before a reset is dropped. */
+	private static volatile int session = 0;
+	
+	/** The number of state hashes that didn't match the server's. */
+	private static int desyncs = 0;
+	
+	/** The slots of the shots still in the simulation this frame. */
+	private static boolean[] simulatedShots = new boolean[MAX_SHOTS];
+	
 	/**
 	 * Initializes the client manager.
 	 */
 	public static void init() {
+		// everything is in view until the server says otherwise
+		Arrays.fill(relevant, true);
+		setInterpolationDelay(PlayerPrefs.get("interpolationDelay", DEFAULT_INTERPOLATION_DELAY));
+		
 		// creates all the asteroids in the world
 		for (int i = 0; i < GameScene.NUM_OF_ASTEROIDS; i++) {
 			asteroids[i] = new GameObject();
 			
-			// adds a sprite renderer component to them
-			new SpriteRenderer(asteroids[i], SpriteRenderer.PRELOADS.get("asteroid"));
+			// adds a sprite renderer component to them, they're placed exactly each frame
+			new SpriteRenderer(asteroids[i], SpriteRenderer.PRELOADS.get("asteroid")).smoothed = false;
 		}
 	}
 	
@@ -51,21 +131,36 @@ public class ClientManager {
 	 */
 	public static void addPlayer(int id, String name, int kills, double health, Transform transform) {
 		// instantiates a new client side player
-		players[id] = new CPlayer(id, name);
+		CPlayer player = new CPlayer(id, name);
 		
 		// sets the kills and health
-		players[id].setKills(kills);
-		players[id].setHealth(health);
+		player.setKills(kills);
+		player.setHealth(health);
+		status.set(id, health, false);
 		
-		// sets the transform
-		players[id].transform = transform;
+		// sets the transform, before the game loop can see the player
+		player.transform = transform;
+		players[id] = player;
 		
-		// if this is the local player, then set the client to the player
-		// and make a new input manager
+		// hides the player if it joined out of view
+		setVisible(player, relevant[id]);
+		
+		// if this is the local player, then set the client to the player,
+		// make a new input manager and start predicting its movement
 		if (id == CClient.instance().id) {
-			CClient.instance().player = players[id];
+			CClient.instance().player = player;
 			CClient.instance().input = new InputManager();
+			
+			// in lockstep the player moves when the simulation does
+			if (!lockstep) prediction = new Prediction(transform);
+			return;
 		}
+		
+		// remote players are interpolated from where they joined
+		interpolation.clear(id);
+		interpolation.add(id, serverTick, transform, 0, 0, 0);
+		for (Component c : player.getComponents())
+			if (c instanceof Renderer) ((Renderer) c).smoothed = false;
 	}
 
 	/**
@@ -84,25 +179,46 @@ public class ClientManager {
 	}
 
 	/**
-	 * Update player.
+	 * Update player, the game loop copies it into the player on its next update.
 	 *
 	 * @param {int} id - the id
 	 * @param {double} health - the health
 	 * @param {boolean} isShooting - the is shooting
-	 * @param {Transform} transform - the transform
 	 */
-	public static void updatePlayer(int id, double health, boolean isShooting, Transform transform) {
-		try {
-			// updates the players health, shooting, and transform, then updates it
-			players[id].setHealth(health);
-			players[id].setShooting(isShooting);
-			players[id].transform = transform;
-			players[id].update();
-		}
-
-		catch (NullPointerException e) { }
+	public static void updatePlayer(int id, double health, boolean isShooting) {
+		status.set(id, health, isShooting);
+	}
+	
+	/**
+	 * Sets if an entity is in view, hiding it if it isn't.
+	 *
+	 * @param {int} index - the entity index
+	 * @param {boolean} isRelevant - if the entity is in view
+	 */
+	public static void setRelevant(int index, boolean isRelevant) {
+		if (index < 0 || index >= relevant.length) return;
+		relevant[index] = isRelevant;
+		
+		// it shouldn't blend from where it was before it left
+		interpolation.clear(index);
+		
+		// finds the entity, players come before the asteroids
+		GameObject entity = (index < Server.MAX_PLAYERS)
+				? players[index] : asteroids[index - Server.MAX_PLAYERS];
+		if (entity != null) setVisible(entity, isRelevant);
 	}
 	
+	/**
+	 * Enables or disables every renderer on a game object.
+	 *
+	 * @param {GameObject} object - the object
+	 * @param {boolean} visible - if it should be rendered
+	 */
+	private static void setVisible(GameObject object, boolean visible) {
+		for (Component c : object.getComponents())
+			if (c instanceof Renderer) ((Renderer) c).enabled = visible;
+	}
+
 	/**
 	 * Killed player.
 	 *
@@ -113,52 +229,496 @@ public class ClientManager {
 		players[id].addKill();
 	}
 
+	/**
+	 * Gets the transform of a player, so it can be updated in place.
+	 *
+	 * @param {int} id - the id
+	 * @return {Transform} the transform, or null if there is no such player
+	 */
+	public static Transform getPlayerTransform(int id) {
+		if (id < 0 || id >= players.length) return null;
+		CPlayer player = players[id];
+		return (player == null) ? null : player.transform;
+	}
+
 	/**
 	 * Adds a shot to the scene.
 	 *
-	 * @param {String} id - the id
+	 * @param {int} id - the id
+	 * @param {int} from - the id of the player that fired it, or -1 if it isn't known
+	 * @param {int} clientTick - the shooter's client tick it was fired on
+	 * @param {int} spawnTick - the server tick the shot was spawned on
+	 * @param {Vector} origin - the origin
+	 * @param {Vector} direction - the direction
+	 * @param {double} speed - the speed in pixels per tick
+	 * @return {boolean} true, if the shot wasn't already being shown
+	 */
+	public static boolean addShot(int id, int from, int clientTick, int spawnTick, Vector origin, Vector direction, double speed) {
+		int slot = id & (MAX_SHOTS - 1);
+		
+		// a shot still in this slot has outlived its removal packet
+		if (shots[slot] != null) shots[slot].destroy();
+		
+		// the local player's shots were shown when they were fired, so they're only confirmed
+		boolean own = from == CClient.instance().id;
+		CShot shot = own ? claimShot(clientTick) : null;
+		if (shot != null) {
+			shot.confirm(id, origin, direction);
+			shots[slot] = shot;
+			return false;
+		}
+		
+		// otherwise it's placed where the server has it at the time being shown
+		shot = shots[slot] = new CShot(id, origin, direction, speed, spawnTick, own);
+		shot.place(own ? getPresentTick() : getRenderTick());
+		return true;
+	}
+	
+	/**
+	 * Shows a shot the local player fired straight away, until the server confirms it.
+	 *
+	 * @param {int} tick - the client tick it was fired on
+	 * @param {Vector} origin - the origin
+	 * @param {Vector} direction - the direction
+	 */
+	private static void predictShot(int tick, Vector origin, Vector direction) {
+		double now = getPresentTick();
+		CShot shot = new CShot(-1, origin, direction, SShot.getTickSpeed(), now, true);
+		shot.place(now);
+		
+		synchronized (predicted) {
+			int slot = tick & (MAX_PREDICTED - 1);
+			if (predicted[slot] != null) predicted[slot].destroy();
+			
+			predicted[slot] = shot;
+			predictedTicks[slot] = tick;
+		}
+		
+		AudioManager.play("shoot", false);
+	}
+	
+	/**
+	 * Takes the predicted shot fired closest to a client tick.
+	 *
+	 * @param {int} tick - the client tick the server fired it on
+	 * @return {CShot} the shot, or null if none were fired near then
+	 */
+	private static CShot claimShot(int tick) {
+		synchronized (predicted) {
+			int best = -1;
+			for (int i = 0; i < MAX_PREDICTED; i++) {
+				if (predicted[i] == null || Math.abs(predictedTicks[i] - tick) > MATCH_WINDOW) continue;
+				if (best < 0 || Math.abs(predictedTicks[i] - tick) < Math.abs(predictedTicks[best] - tick)) best = i;
+			}
+			
+			if (best < 0) return null;
+			CShot shot = predicted[best];
+			predicted[best] = null;
+			return shot;
+		}
+	}
+	
+	/**
+	 * Discards the predicted shots the server should have confirmed by now, it didn't fire them.
+	 *
+	 * @param {int} acknowledged - the last client tick the server had applied
+	 */
+	private static void discardShots(int acknowledged) {
+		synchronized (predicted) {
+			for (int i = 0; i < MAX_PREDICTED; i++) {
+				if (predicted[i] == null || predictedTicks[i] >= acknowledged - CONFIRM_TICKS) continue;
+				
+				predicted[i].destroy();
+				predicted[i] = null;
+			}
+		}
+	}
+	
+	/**
+	 * Places the remote players, asteroids and shots where they were at the time being shown,
+	 * called every frame so they move smoothly whenever the updates arrived.
+	 */
+	public static void update() {
+		lockstepCommands.drain();
+		if (lockstep) { mirror(); return; }
+		double tick = getRenderTick(), now = getPresentTick();
+		
+		// copies in what the network threads published, the local player from its prediction
+		int self = CClient.instance().id;
+		Prediction p = prediction;
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			CPlayer player = players[i];
+			if (player == null) continue;
+			
+			if (i == self && p != null) p.read(player.transform);
+			status.apply(i, player);
+			player.update();
+		}
+		
+		// the local player's shots are shown in the present, like the player
+		for (int i = 0; i < MAX_SHOTS; i++) {
+			CShot shot = shots[i];
+			if (shot == null) continue;
+			
+			double shown = shot.isPredicted() ? now : tick;
+			if (shot.isRemoved(shown)) destroyShot(i, shot);
+			else shot.place(shown);
+		}
+		
+		synchronized (predicted) {
+			for (int i = 0; i < MAX_PREDICTED; i++)
+				if (predicted[i] != null) predicted[i].place(now);
+		}
+		
+		// the local player is predicted instead
+		for (int i = 0; i < relevant.length; i++) {
+			if (i == self) continue;
+			
+			Transform transform = (i < Server.MAX_PLAYERS)
+					? getPlayerTransform(i) : getAsteroidTransform(i - Server.MAX_PLAYERS);
+			if (transform != null) interpolation.sample(i, tick, transform);
+		}
+	}
+	
+	/**
+	 * Shows the lockstep simulation as it was after its latest tick, from the copy the tick
+	 * published, as the hosted room's simulation is ticked on another thread.
+	 */
+	private static void mirror() {
+		ServerManager sim = simulation;
+		if (sim == null) return;
+		WorldCapture view = sim.getView();
+		
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			CPlayer player = players[i];
+			if (player == null || !view.exists[i]) continue;
+			
+			player.transform.position.set(view.x[i], view.y[i]);
+			player.transform.rotation = view.rotation[i];
+			player.setHealth(view.health[i]);
+			player.setShooting(view.shooting[i]);
+			player.setKills(view.kills[i]);
+			player.update();
+		}
+		
+		for (int i = 0; i < GameScene.NUM_OF_ASTEROIDS; i++) {
+			int index = Server.MAX_PLAYERS + i;
+			Transform transform = getAsteroidTransform(i);
+			if (!view.exists[index] || transform == null) continue;
+			
+			transform.position.set(view.x[index], view.y[index]);
+			transform.rotation = view.rotation[index];
+		}
+		
+		// adds the shots fired since the last frame, and moves every shot
+		Arrays.fill(simulatedShots, false);
+		for (int s = 0; s < view.shotCount; s++) {
+			int id = view.shotIds[s];
+			int slot = id & (MAX_SHOTS - 1);
+			if ((shots[slot] == null || shots[slot].getId() != id)
+					&& addShot(id, -1, 0, view.shotSpawnTicks[s],
+							new Vector(view.shotOriginX[s], view.shotOriginY[s]),
+							new Vector(view.shotDirectionX[s], view.shotDirectionY[s]), SShot.getTickSpeed()))
+				AudioManager.play("shoot", false);
+			
+			shots[slot].transform.position.set(view.shotX[s], view.shotY[s]);
+			simulatedShots[slot] = true;
+		}
+		
+		// removes the shots the simulation has removed
+		for (int i = 0; i < MAX_SHOTS; i++) {
+			if (shots[i] == null || simulatedShots[i]) continue;
+			shots[i].destroy();
+			shots[i] = null;
+		}
+	}
+	
+	/**
+	 * Queues something the server sent about the lockstep round for the game loop,
+	 * dropping it if the client manager is reset before it's applied.
+	 *
+	 * @param {CommandQueue.Command} command - the command
+	 */
+	private static void queueLockstep(CommandQueue.Command command) {
+		int queued = session;
+		lockstepCommands.add(() -> { if (queued == session) command.apply(); });
+	}
+	
+	/**
+	 * Starts a lockstep round once the game loop gets to it.
+	 *
+	 * @param {int} tick - the tick the round starts on
+	 * @param {long} seed - the seed
+	 * @param {int} asteroids - the number of asteroids in the world
+	 * @param {int[]} ids - the ids of the players, in the order they're added
+	 * @param {String[]} names - the names of the players
+	 * @param {int[]} kills - the kills of the players
+	 * @param {int} count - the number of players
+	 */
+	public static void startLockstep(int tick, long seed, int asteroids, int[] ids, String[] names, int[] kills, int count) {
+		queueLockstep(() -> beginRound(tick, seed, asteroids, ids, names, kills, count));
+	}
+	
+	/**
+	 * Starts a lockstep round, a client that isn't hosting rebuilds the simulation from the seed.
+	 *
+	 * @param {int} tick - the tick the round starts on
+	 * @param {long} seed - the seed
+	 * @param {int} asteroids - the number of asteroids in the world
+	 * @param {int[]} ids - the ids of the players, in the order they're added
+	 * @param {String[]} names - the names of the players
+	 * @param {int[]} kills - the kills of the players
+	 * @param {int} count - the number of players
+	 */
+	private static void beginRound(int tick, long seed, int asteroids, int[] ids, String[] names, int[] kills, int count) {
+		lockstep = true;
+		prediction = null;
+		discardShots(Integer.MAX_VALUE);
+		
+		// a client that isn't hosting keeps its copy in a room of its own, which is never started
+		replica = !Server.instance().isRunning();
+		if (replica) {
+			if (simulation == null || simulation == Server.instance().manager) simulation = new Server().manager;
+			simulation.restart(tick, seed, asteroids);
+			for (int i = 0; i < count; i++) simulation.addPlayer(ids[i], names[i]).kills = kills[i];
+		}
+		
+		else simulation = Server.instance().manager;
+		
+		// hides the asteroids the server didn't add
+		for (int i = 0; i < GameScene.NUM_OF_ASTEROIDS; i++)
+			setRelevant(Server.MAX_PLAYERS + i, i < asteroids);
+		
+		// adds the players this client hasn't been told about yet
+		for (int i = 0; i < count; i++)
+			if (players[ids[i]] == null) addPlayer(ids[i], names[i], kills[i], SPlayer.MAX_HEALTH, new Transform());
+		
+		System.out.printf("[CLIENT] Lockstep round started at tick %d with %d players\n", tick, count);
+	}
+	
+	/**
+	 * Applies a command that took effect on the next lockstep tick, once the game loop gets to it.
+	 *
+	 * @param {int} id - the id of the player
+	 * @param {int} sequence - the sequence number
+	 * @param {int} tick - the client tick of the command
+	 * @param {boolean[]} controls - if each control is pressed, copied as the caller reuses it
+	 * @param {Vector} mouse - the mouse position
+	 * @param {double} offset - how far through the tick the shoot control went down, or -1 if it didn't
+	 */
+	public static void lockstepInput(int id, int sequence, int tick, boolean[] controls, Vector mouse, double offset) {
+		boolean[] pressed = controls.clone();
+		
+		queueLockstep(() -> {
+			if (!replica) return;
+			
+			SPlayer player = simulation.getPlayer(id);
+			if (player != null) player.controller.inputManager.apply(sequence, tick, pressed, mouse.x, mouse.y, offset);
+		});
+	}
+	
+	/**
+	 * Simulates a lockstep tick once the game loop gets to it, after its commands have been applied.
+	 * The network thread only queues it, so a slow tick doesn't hold up reading what comes next.
+	 *
+	 * @param {int} tick - the tick
+	 */
+	public static void lockstepTick(int tick) {
+		queueLockstep(() -> {
+			if (!replica) return;
+			
+			if (tick != simulation.getTick() + 1)
+				System.out.printf("[CLIENT] Lockstep tick %d arrived after tick %d\n", tick, simulation.getTick());
+			simulation.tick();
+		});
+	}
+	
+	/**
+	 * Checks the simulation against the server's hash of the same tick, once the game loop gets to it.
+	 *
+	 * @param {int} tick - the tick
+	 * @param {long} hash - the server's hash
+	 */
+	public static void checkState(int tick, long hash) {
+		queueLockstep(() -> verify(tick, hash));
+	}
+	
+	/**
+	 * Checks the simulation against the server's hash of the same tick.
+	 *
+	 * @param {int} tick - the tick
+	 * @param {long} hash - the server's hash
+	 */
+	private static void verify(int tick, long hash) {
+		if (!replica || tick != simulation.getTick()) return;
+		
+		long local = simulation.hash();
+		if (local == hash) return;
+		
+		desyncs++;
+		System.out.printf("[CLIENT] Desync at tick %d, %016x against the server's %016x, %d so far\n", tick, local, hash, desyncs);
+	}
+
+	/**
+	 * Gets the server tick remote entities are shown at, a delay behind the server's clock
+	 * so there's usually an update either side of it.
+	 *
+	 * @return {double} the tick, with the fraction of the way through it
+	 */
+	public static double getRenderTick() {
+		return getPresentTick() - interpolationDelay;
+	}
+	
+	/**
+	 * Gets the server tick it is now, from the synced clock once there is one.
+	 *
+	 * @return {double} the tick, with the fraction of the way through it
+	 */
+	public static double getPresentTick() {
+		ServerClock clock = CClient.instance().clock;
+		return clock.isSynced() ? clock.getTick() : serverTick;
+	}
+	
+	/**
+	 * Gets how far behind the server remote entities are shown.
+	 *
+	 * @return {double} the delay in milliseconds
+	 */
+	public static double getInterpolationDelay() {
+		return interpolationDelay * ServerClock.getTickNanos() / 1e6;
+	}
+	
+	/**
+	 * Sets how far behind the server remote entities are shown.
+	 *
+	 * @param {double} delay - the delay in milliseconds
+	 */
+	public static void setInterpolationDelay(double delay) {
+		interpolationDelay = Math.max(0, delay) * 1e6 / ServerClock.getTickNanos();
+		
+		// the server only resends an entity every so often while it moves as it was last sent,
+		// and the newest update it did send may be the delay older again by the time it's shown
+		interpolation.setMaxExtrapolation(DeadReckoning.REFRESH_TICKS + interpolationDelay);
+	}
+	
+	/**
+	 * Steps the game at the server's timestep, sent when this client is admitted.
+	 *
+	 * @param {double} timestep - the length of a tick in seconds
+	 */
+	public static void setFixedTimestep(double timestep) {
+		// the delay is kept in ticks, so it's worked out again for the new tick length
+		double delay = getInterpolationDelay();
+		Game.setFixedTimestep(timestep);
+		setInterpolationDelay(delay);
+	}
+	
+	/**
+	 * Adds an update of a remote entity from the server.
+	 *
+	 * @param {int} index - the entity index
+	 * @param {int} tick - the server tick of the update
 	 * @param {Transform} transform - the transform
+	 * @param {double} x - the x velocity
+	 * @param {double} y - the y velocity
+	 * @param {double} angular - the angular velocity
+	 */
+	public static void addUpdate(int index, int tick, Transform transform, double x, double y, double angular) {
+		if (index < 0 || index >= relevant.length) return;
+		interpolation.add(index, tick, transform, x, y, angular);
+	}
+	
+	/**
+	 * Predicts the local player's movement for one client tick, and any shot it fires.
+	 *
+	 * @param {int} tick - the client tick
+	 * @param {InputManager} input - the input
+	 */
+	public static void predict(int tick, InputManager input) {
+		Prediction p = prediction;
+		if (p != null && p.step(tick, input))
+			predictShot(tick, p.getShotOrigin(), p.getShotDirection());
+	}
+	
+	/**
+	 * Rewinds the local player to the server's state, and replays the input it hasn't seen.
+	 * Predicted shots from long enough before what the server applied are discarded.
+	 *
+	 * @param {int} acknowledged - the last client tick the server had applied
+	 * @param {Transform} transform - the server's transform of the player
+	 * @param {Vector} velocity - the server's velocity of the player
 	 */
-	public static void addShot(String id, Transform transform) {
-		// adds it to the shots hashmap
-		shots.put(id, new CShot(transform));
+	public static void reconcile(int acknowledged, Transform transform, Vector velocity) {
+		Prediction p = prediction;
+		if (p != null) p.reconcile(acknowledged, transform, velocity);
+		discardShots(acknowledged);
 	}
+	
 
 	/**
-	 * Removes a shot.
+	 * Marks the world state as applied, so snapshots after it are accepted.
 	 *
-	 * @param {String} id - the id
+	 * @param {int} tick - the tick of the world state
 	 */
-	public static void removeShot(String id) {
-		CShot shot = shots.remove(id);
-		if (shot == null) return;
-		shot.destroy();
+	public static void joined(int tick) {
+		joinTick = tick;
+	}
+	
+	/**
+	 * Checks if a snapshot should be applied, only ones after the world state are.
+	 *
+	 * @param {int} tick - the tick of the snapshot
+	 * @return {boolean} true, if the snapshot should be applied
+	 */
+	public static boolean acceptsSnapshot(int tick) {
+		return joinTick >= 0 && tick >= joinTick;
+	}
+	
+	/**
+	 * Sets the tick of the latest snapshot.
+	 *
+	 * @param {int} tick - the tick
+	 */
+	public static void setServerTick(int tick) {
+		serverTick = tick;
 	}
 
 	/**
-	 * Updates a shot.
+	 * Removes a shot once it's shown reaching the tick the server removed it on,
+	 * remote shots are shown behind so they'd otherwise vanish short of what they hit.
 	 *
-	 * @param {String} id - the id
-	 * @param {Transform} transform - the transform
+	 * @param {int} id - the id
 	 */
-	public static void updateShot(String id, Transform transform) {
-		// gets the shot
-		CShot shot = shots.get(id);
-		if (shot == null) return;
+	public static void removeShot(int id) {
+		int slot = id & (MAX_SHOTS - 1);
+		CShot shot = shots[slot];
+		if (shot == null || shot.getId() != id) return;
 		
-		// updates the transform if it exists
-		shot.transform = transform;
+		// the newest tick received is about when the server removed it
+		shot.remove(serverTick);
 	}
-	
+
 	/**
-	 * Updates an asteroid.
+	 * Destroys a shot, unless its slot was already reused.
+	 *
+	 * @param {int} slot - the slot
+	 * @param {CShot} shot - the shot in it
+	 */
+	private static void destroyShot(int slot, CShot shot) {
+		if (shots[slot] == shot) shots[slot] = null;
+		shot.destroy();
+	}
+
+	/**
+	 * Gets the transform of an asteroid, so it can be updated in place.
 	 *
 	 * @param {int} index - the index
-	 * @param {Transform} transform - the transform
+	 * @return {Transform} the transform, or null if there is no such asteroid
 	 */
-	public static void updateAsteroid(int index, Transform transform) {
-		if (asteroids[index] == null) return;
-		asteroids[index].transform = transform;
+	public static Transform getAsteroidTransform(int index) {
+		if (index < 0 || index >= asteroids.length) return null;
+		GameObject asteroid = asteroids[index];
+		return (asteroid == null) ? null : asteroid.transform;
 	}
 
 	/**
@@ -179,11 +739,26 @@ public class ClientManager {
 			players[i] = null;
 		}
 		
-		// destroys every shot in the hash map
-		for (CShot shot : shots.values())
-			shot.destroy();
+		serverTick = 0;
+		joinTick = -1;
+		prediction = null;
+		
+		// stops the copy of the lockstep simulation, the server stops its own, dropping what was
+		// queued for it, the game loop resets the copy as only it touches it
+		session++;
+		lockstep = false;
+		ServerManager copy = replica ? simulation : null;
+		simulation = null;
+		replica = false;
+		if (copy != null) lockstepCommands.add(copy::reset);
+		interpolation.clear();
 		
-		// clears the hash map
-		shots.clear();
+		// destroys every shot still alive
+		for (int i = 0; i < MAX_SHOTS; i++) {
+			if (shots[i] == null) continue;
+			shots[i].destroy();
+			shots[i] = null;
+		}
+		discardShots(Integer.MAX_VALUE);
 	}
 }
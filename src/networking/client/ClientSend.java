@@ -2,10 +2,10 @@ package networking.client;
 
 import java.io.IOException;
 import java.net.DatagramPacket;
-import java.util.HashMap;
 
-import framework.common.InputManager.Controls;
+import networking.Frame;
 import networking.Packet;
+import networking.Traffic;
 
 /**
  * The Class ClientSend, used to send packets from client to server.
@@ -13,6 +13,9 @@ import networking.Packet;
  * @author priyangkar ghosh
  */
 public class ClientSend {
+
+	/** The packets and bytes sent to the server, by type. */
+	public static final Traffic SENT = new Traffic("client sent", Packet.Client.values(), 1);
 	
 	/**
 	 * Send a TCP packet to the server.
@@ -20,12 +23,11 @@ public class ClientSend {
 	 * @param {Packet} packet - the packet
 	 */
 	private static void sendTCP(Packet packet) {
+		assert packet.matchesSchema() : packet.getType() + " doesn't match its schema";
+		
 		try {
-			// writes the packet to the output stream and then flushes
-			CClient.instance().tcp.out.write(packet.getBuffer());
-			
-			// if it's not flushed, it won't send
-			CClient.instance().tcp.out.flush();
+			// writes the packet to the output stream as one frame, then flushes
+			SENT.record(packet.peekInt(0), 0, Frame.write(CClient.instance().tcp.out, packet));
 		}
 
 		catch (IOException e) {
@@ -39,16 +41,19 @@ public class ClientSend {
 	 * @param {Packet} packet - the packet
 	 */
 	private static void sendUDP(Packet packet) {
+		assert packet.matchesSchema() : packet.getType() + " doesn't match its schema";
+		
 		try {
 			// creates a new datagram packet from the packet
 			DatagramPacket udpPacket = new DatagramPacket(
-					packet.getBuffer(), Packet.BUFFER_ALLOCATE,
+					packet.getBuffer(), packet.size(),
 					CClient.instance().udp.socket.getInetAddress(),
 					CClient.instance().udp.socket.getPort()
 			);
 			
 			// sends the packet using udp
 			CClient.instance().udp.socket.send(udpPacket);
+			SENT.record(packet.peekInt(0), 0, packet.size());
 		}
 
 		catch (IOException e) {
@@ -69,6 +74,8 @@ public class ClientSend {
 		packet.write(CClient.instance().id);
 		packet.write(CClient.instance().name);
 		packet.write(CClient.instance().udp.socket.getLocalPort());
+		packet.write(Packet.PROTOCOL_VERSION);
+		packet.write(ClientManager.getInterpolationDelay());
 		
 		// sends it to the server
 		sendTCP(packet);
@@ -88,6 +95,37 @@ public class ClientSend {
 		sendTCP(packet);
 	}
 
+	/**
+	 * Pings the server, it echoes the time back with its tick.
+	 */
+	public static void ping() {
+		// initializes the packet with its id
+		Packet packet = new Packet(Packet.Client.PING);
+		
+		// writes the contents of the packet
+		packet.write(CClient.instance().id);
+		packet.write(System.nanoTime());
+		
+		// sends it over udp, so the round trip is what snapshots see
+		sendUDP(packet);
+	}
+
+	/**
+	 * Replies to the server's ping.
+	 *
+	 * @param {long} time - the time the server sent the ping
+	 */
+	public static void pong(long time) {
+		// initializes the packet with its id
+		Packet packet = new Packet(Packet.Client.PONG);
+		
+		// writes the contents of the packet
+		packet.write(CClient.instance().id);
+		packet.write(time);
+		
+		sendUDP(packet);
+	}
+
 	/**
 	 * Player input.
 	 */
@@ -95,12 +133,10 @@ public class ClientSend {
 		// initializes the packet with its id
 		Packet packet = new Packet(Packet.Client.PLAYER_INPUT);
 		
-		// writes the contents of the packet
+		// writes the contents of the packet, the latest commands for redundancy
 		try {
 			packet.write(CClient.instance().id);
-			HashMap<Controls, Boolean> inputMap = CClient.instance().input.getInput();
-			for (Controls key : Controls.values()) packet.write(inputMap.get(key));
-			packet.write(CClient.instance().input.getMousePosition());
+			CClient.instance().input.write(packet);
 			
 			// sends it to the server using udp
 			sendUDP(packet);
@@ -0,0 +1,173 @@
+package networking.client;
+
+import framework.common.Transform;
+import framework.math.MathExt;
+import networking.server.DeadReckoning;
+
+/**
+ * The Class Interpolation, a buffer of the states the server sent for each remote entity.
+ * Entities are shown a little behind the server's clock, so there is usually an update
+ * on both sides of the time being shown. Between two updates the entity blends from moving
+ * on from the first to moving back from the second, which also follows the curve the
+ * velocities describe. Past the newest update it is extrapolated, but only for so long.
+ * Each entity is published through a seq lock, so the network threads write it while
+ * the game loop samples it without locking or ever seeing half an update.
+ *
+ * @author priyangkar ghosh
+ */
+public class Interpolation {
+
+	/** The Constant SIZE, how many updates are kept for each entity, a power of two. */
+	public static final int SIZE = 32;
+
+	/** The most ticks an entity is moved on past its newest update. */
+	private double maxExtrapolation = DeadReckoning.REFRESH_TICKS;
+
+	/** The tick, position, rotation and velocities of each update, indexed by entity then slot. */
+	private int[][] ticks;
+	private double[][] x, y, rotation, vx, vy, angularVelocity;
+
+	/** The number of updates stored for each entity. */
+	private int[] count;
+
+	/** The version of each entity, readers never lock. */
+	private SeqLock lock;
+
+	/**
+	 * Instantiates a new interpolation buffer.
+	 *
+	 * @param {int} entities - the number of entities
+	 */
+	public Interpolation(int entities) {
+		this.ticks = new int[entities][SIZE];
+		this.x = new double[entities][SIZE];
+		this.y = new double[entities][SIZE];
+		this.rotation = new double[entities][SIZE];
+		this.vx = new double[entities][SIZE];
+		this.vy = new double[entities][SIZE];
+		this.angularVelocity = new double[entities][SIZE];
+		this.count = new int[entities];
+		this.lock = new SeqLock(entities);
+	}
+
+	/**
+	 * Adds an update from the server, writers lock between themselves.
+	 *
+	 * @param {int} index - the entity index
+	 * @param {int} tick - the server tick of the update
+	 * @param {Transform} transform - the transform
+	 * @param {double} velocityX - the x velocity, per tick
+	 * @param {double} velocityY - the y velocity, per tick
+	 * @param {double} angular - the angular velocity, per tick
+	 */
+	public synchronized void add(int index, int tick, Transform transform, double velocityX, double velocityY, double angular) {
+		int n = this.count[index];
+
+		// updates arrive in order, anything older than the newest is dropped
+		if (n > 0 && tick < this.ticks[index][(n - 1) & (SIZE - 1)]) return;
+		if (n > 0 && tick == this.ticks[index][(n - 1) & (SIZE - 1)]) n--;
+
+		int slot = n & (SIZE - 1);
+		this.lock.beginWrite(index);
+		this.ticks[index][slot] = tick;
+		this.x[index][slot] = transform.position.x;
+		this.y[index][slot] = transform.position.y;
+		this.rotation[index][slot] = transform.rotation;
+		this.vx[index][slot] = velocityX;
+		this.vy[index][slot] = velocityY;
+		this.angularVelocity[index][slot] = angular;
+		this.count[index] = n + 1;
+		this.lock.endWrite(index);
+	}
+
+	/**
+	 * Sets a transform to where an entity was at a tick, without locking.
+	 *
+	 * @param {int} index - the entity index
+	 * @param {double} tick - the server tick to show, with the fraction of the way through it
+	 * @param {Transform} out - the transform to set
+	 * @return {boolean} true, if there was an update to go from
+	 */
+	public boolean sample(int index, double tick, Transform out) {
+		int n, version;
+		double ax = 0, ay = 0, ar = 0, bx = 0, by = 0, br = 0, sinceA = 0, untilB = 0;
+		boolean between = false;
+
+		// copies the two updates either side of the tick, again if they were written meanwhile
+		do {
+			version = this.lock.beginRead(index);
+			n = this.count[index];
+			if (n == 0) {
+				if (this.lock.validate(index, version)) return false;
+				continue;
+			}
+
+			// finds the newest update at or before the tick, searching back from the newest
+			int oldest = Math.max(0, n - SIZE), before = n - 1;
+			while (before > oldest && this.ticks[index][before & (SIZE - 1)] > tick) before--;
+
+			int a = before & (SIZE - 1), b = (before + 1) & (SIZE - 1);
+			sinceA = tick - this.ticks[index][a];
+			untilB = this.ticks[index][b] - tick;
+			between = before != n - 1 && sinceA >= 0;
+
+			// moves the first on to the tick, and the second back to it
+			ax = this.x[index][a] + this.vx[index][a] * sinceA;
+			ay = this.y[index][a] + this.vy[index][a] * sinceA;
+			ar = this.rotation[index][a] + this.angularVelocity[index][a] * sinceA;
+			bx = this.x[index][b] - this.vx[index][b] * untilB;
+			by = this.y[index][b] - this.vy[index][b] * untilB;
+			br = this.rotation[index][b] - this.angularVelocity[index][b] * untilB;
+
+			// past the newest update, moves on from it for a bounded time
+			if (!between) {
+				double t = MathExt.clamp(sinceA, 0, this.maxExtrapolation);
+				ax = this.x[index][a] + this.vx[index][a] * t;
+				ay = this.y[index][a] + this.vy[index][a] * t;
+				ar = this.rotation[index][a] + this.angularVelocity[index][a] * t;
+			}
+		} while (!this.lock.validate(index, version));
+
+		if (!between) {
+			out.position.set(ax, ay);
+			out.rotation = ar;
+			return true;
+		}
+
+		// between two updates, blends moving on from the first with moving back from the second
+		double blend = sinceA / (sinceA + untilB);
+		out.position.set(ax + (bx - ax) * blend, ay + (by - ay) * blend);
+
+		// blends the rotations the short way round
+		out.rotation = ar + Math.IEEEremainder(br - ar, MathExt.TWO_PI) * blend;
+		return true;
+	}
+
+	/**
+	 * Sets the most ticks an entity is moved on past its newest update. The server holds back
+	 * the updates of an entity moving as it was last sent, so this has to cover the longest it does.
+	 *
+	 * @param {double} ticks - the ticks
+	 */
+	public void setMaxExtrapolation(double ticks) {
+		this.maxExtrapolation = ticks;
+	}
+
+	/**
+	 * Forgets every update of an entity, so it doesn't blend from where it was.
+	 *
+	 * @param {int} index - the entity index
+	 */
+	public synchronized void clear(int index) {
+		this.lock.beginWrite(index);
+		this.count[index] = 0;
+		this.lock.endWrite(index);
+	}
+
+	/**
+	 * Forgets every update.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < this.count.length; i++) this.clear(i);
+	}
+}
@@ -0,0 +1,60 @@
+package networking.client;
+
+import gameobjects.CPlayer;
+import networking.server.Server;
+
+/**
+ * The Class PlayerStatus, the latest health and shooting of each player from the server.
+ * The network threads write it and the game loop copies it into the players,
+ * through a seq lock so neither waits on the other.
+ *
+ * @author priyangkar ghosh
+ */
+public class PlayerStatus {
+
+	/** The health of each player. */
+	private double[] health = new double[Server.MAX_PLAYERS];
+
+	/** If each player is shooting. */
+	private boolean[] shooting = new boolean[Server.MAX_PLAYERS];
+
+	/** The version of each player, readers never lock. */
+	private SeqLock lock = new SeqLock(Server.MAX_PLAYERS);
+
+	/**
+	 * Sets the status of a player, writers lock between themselves.
+	 *
+	 * @param {int} id - the id of the player
+	 * @param {double} health - the health
+	 * @param {boolean} isShooting - if it's shooting
+	 */
+	public synchronized void set(int id, double health, boolean isShooting) {
+		if (id < 0 || id >= Server.MAX_PLAYERS) return;
+
+		this.lock.beginWrite(id);
+		this.health[id] = health;
+		this.shooting[id] = isShooting;
+		this.lock.endWrite(id);
+	}
+
+	/**
+	 * Copies the status of a player into it, without locking.
+	 *
+	 * @param {int} id - the id of the player
+	 * @param {CPlayer} player - the player
+	 */
+	public void apply(int id, CPlayer player) {
+		double health;
+		boolean isShooting;
+		int version;
+
+		do {
+			version = this.lock.beginRead(id);
+			health = this.health[id];
+			isShooting = this.shooting[id];
+		} while (!this.lock.validate(id, version));
+
+		player.setHealth(health);
+		player.setShooting(isShooting);
+	}
+}
@@ -0,0 +1,206 @@
+package networking.client;
+
+import framework.common.GameObject;
+import framework.common.InputManager;
+import framework.common.InputManager.Controls;
+import framework.common.Transform;
+import framework.components.ComponentRegistry;
+import framework.components.Rigidbody;
+import framework.components.SCharacterController;
+import framework.math.Vector;
+import framework.physics.Physics.ForceMode;
+import game.Game;
+import gameobjects.SPlayer;
+import gameobjects.SShot;
+
+/**
+ * The Class Prediction, runs the local player's movement on the client as soon as the input happens.
+ * Every client tick the same steering and integration the server runs is applied to a local body,
+ * and the input is kept. When the server's state arrives, tagged with the last client tick it
+ * has applied, the body is rewound to it and the inputs the server hasn't seen yet are replayed.
+ * The predicted pose is published through a seq lock, so the game loop reads it without locking.
+ *
+ * @author priyangkar ghosh
+ */
+public class Prediction {
+
+	/** The Constant HISTORY, how many ticks of input are kept, a power of two. */
+	public static final int HISTORY = 128;
+
+	/** The body being predicted, and the object it moves, in a world of its own as it's only stepped here. */
+	private GameObject ghost = new GameObject(new ComponentRegistry());
+	private Rigidbody body;
+
+	/** The client tick, mouse position, shoot input and shot timer of each tick, in the slot given by the tick. */
+	private int[] ticks = new int[HISTORY];
+	private double[] mouseX = new double[HISTORY];
+	private double[] mouseY = new double[HISTORY];
+	private boolean[] shooting = new boolean[HISTORY];
+	private double[] offsets = new double[HISTORY];
+	private double[] shotTimers = new double[HISTORY];
+
+	/** The latest client tick predicted. */
+	private int latest = -1;
+
+	/** The time until the player can shoot again, as the server counts it. */
+	private double shotTimer = 0;
+
+	/** The published position and rotation, and their version. */
+	private double poseX, poseY, poseRotation;
+	private SeqLock lock = new SeqLock(1);
+
+	/** Where the latest predicted shot starts, and the direction it travels in. */
+	private Vector shotOrigin = Vector.zero(), shotDirection = Vector.zero();
+
+	/**
+	 * Instantiates a new prediction, starting from where the server placed the player.
+	 *
+	 * @param {Transform} transform - the transform of the player
+	 */
+	public Prediction(Transform transform) {
+		this.body = SPlayer.createBody(this.ghost);
+		this.place(transform, Vector.zero());
+		this.publish();
+	}
+
+	/**
+	 * Predicts one client tick with the current input.
+	 *
+	 * @param {int} tick - the client tick
+	 * @param {InputManager} input - the input
+	 * @return {boolean} true, if the player shot this tick
+	 */
+	public synchronized boolean step(int tick, InputManager input) {
+		int slot = tick & (HISTORY - 1);
+
+		// keeps the input so it can be replayed
+		this.ticks[slot] = tick;
+		this.mouseX[slot] = input.getMousePosition().x;
+		this.mouseY[slot] = input.getMousePosition().y;
+		this.shooting[slot] = input.getInput(Controls.SHOOT);
+		this.offsets[slot] = (input.getCommandTick() == tick) ? input.getPressOffset() : -1;
+		this.shotTimers[slot] = this.shotTimer;
+		this.latest = tick;
+
+		boolean shot = this.simulate(slot);
+		this.publish();
+		return shot;
+	}
+
+	/**
+	 * Rewinds to the server's state, then replays every input it hasn't applied yet.
+	 *
+	 * @param {int} acknowledged - the last client tick the server had applied
+	 * @param {Transform} transform - the server's transform of the player
+	 * @param {Vector} velocity - the server's velocity of the player
+	 */
+	public synchronized void reconcile(int acknowledged, Transform transform, Vector velocity) {
+		this.place(transform, velocity);
+
+		// the shot timer goes back to what it was at the first replayed tick
+		int first = acknowledged + 1;
+		if (this.latest - first >= HISTORY) first = this.latest - HISTORY + 1;
+		if (first <= this.latest && this.ticks[first & (HISTORY - 1)] == first)
+			this.shotTimer = this.shotTimers[first & (HISTORY - 1)];
+
+		for (int tick = first; tick <= this.latest; tick++) {
+			int slot = tick & (HISTORY - 1);
+			if (this.ticks[slot] == tick) this.simulate(slot);
+		}
+
+		this.publish();
+	}
+
+	/**
+	 * Runs one tick of the server's movement with a stored input.
+	 *
+	 * @param {int} slot - the slot of the input
+	 * @return {boolean} true, if the player shot
+	 */
+	private boolean simulate(int slot) {
+		Vector mouseDir = SCharacterController.steer(
+				this.body, new Vector(this.mouseX[slot], this.mouseY[slot]), SPlayer.MOVE_FORCE
+		);
+
+		// the recoil of shooting, counted the same way as the server
+		boolean shot = false;
+		this.shotTimer = Math.max(this.shotTimer - SPlayer.SHOTS_PER_SECOND * Game.getFixedTimestep(), 0);
+		if (this.shooting[slot] && this.shotTimer == 0) {
+			// the shot starts where the server would spawn it, moved on if it was fired partway through the tick
+			double lead = SCharacterController.lead(this.offsets[slot]);
+			this.shotOrigin.set(this.ghost.transform.position.add(mouseDir.scale(SShot.SPAWN_OFFSET + SShot.getTickSpeed() * lead)));
+			this.shotDirection.set(mouseDir);
+
+			this.body.addForce(mouseDir.scale(SPlayer.RECOIL), ForceMode.IMPULSE);
+			this.shotTimer = 1;
+			shot = true;
+		}
+
+		this.body.update();
+		return shot;
+	}
+
+	/**
+	 * Gets where the latest predicted shot starts.
+	 *
+	 * @return {Vector} the origin
+	 */
+	public Vector getShotOrigin() {
+		return this.shotOrigin;
+	}
+
+	/**
+	 * Gets the direction of the latest predicted shot.
+	 *
+	 * @return {Vector} the unit direction
+	 */
+	public Vector getShotDirection() {
+		return this.shotDirection;
+	}
+
+	/**
+	 * Moves the body to a transform and velocity.
+	 *
+	 * @param {Transform} transform - the transform
+	 * @param {Vector} velocity - the velocity
+	 */
+	private void place(Transform transform, Vector velocity) {
+		Transform current = this.ghost.transform;
+
+		this.body.translate(transform.position.subtract(current.position), false);
+		this.body.rotate(transform.rotation - current.rotation, false);
+		this.body.addForce(velocity, ForceMode.SET);
+		this.body.updateEdges();
+	}
+
+	/**
+	 * Publishes the predicted pose, only called while holding the lock on this.
+	 */
+	private void publish() {
+		this.lock.beginWrite(0);
+		this.poseX = this.ghost.transform.position.x;
+		this.poseY = this.ghost.transform.position.y;
+		this.poseRotation = this.ghost.transform.rotation;
+		this.lock.endWrite(0);
+	}
+
+	/**
+	 * Copies the predicted pose into the player, without locking.
+	 *
+	 * @param {Transform} out - the transform of the player
+	 */
+	public void read(Transform out) {
+		double x, y, rotation;
+		int version;
+
+		do {
+			version = this.lock.beginRead(0);
+			x = this.poseX;
+			y = this.poseY;
+			rotation = this.poseRotation;
+		} while (!this.lock.validate(0, version));
+
+		out.position.set(x, y);
+		out.rotation = rotation;
+	}
+}
@@ -0,0 +1,69 @@
+package networking.client;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The Class SeqLock, a version for each slot of some primitive arrays, so one thread
+ * can write a slot while others read it without a lock. The writer makes the version odd,
+ * writes, then makes it even again. A reader copies what it needs between reading the version
+ * and checking it again, and copies again if it was odd or had changed.
+ * Writers of the same slot must not run at once, so they hold a lock between themselves.
+ *
+ * @author priyangkar ghosh
+ */
+public class SeqLock {
+
+	/** The version of each slot, odd while it's being written. */
+	private final AtomicIntegerArray versions;
+
+	/**
+	 * Instantiates a new seq lock.
+	 *
+	 * @param {int} slots - the number of slots
+	 */
+	public SeqLock(int slots) {
+		this.versions = new AtomicIntegerArray(slots);
+	}
+
+	/**
+	 * Marks a slot as being written, the writes after this can't be seen before it.
+	 *
+	 * @param {int} slot - the slot
+	 */
+	public void beginWrite(int slot) {
+		this.versions.setPlain(slot, this.versions.getPlain(slot) + 1);
+		VarHandle.storeStoreFence();
+	}
+
+	/**
+	 * Marks a slot as written, the writes before this are seen before it.
+	 *
+	 * @param {int} slot - the slot
+	 */
+	public void endWrite(int slot) {
+		this.versions.setRelease(slot, this.versions.getPlain(slot) + 1);
+	}
+
+	/**
+	 * Gets the version of a slot before reading it.
+	 *
+	 * @param {int} slot - the slot
+	 * @return {int} the version, to be checked after reading
+	 */
+	public int beginRead(int slot) {
+		return this.versions.getAcquire(slot);
+	}
+
+	/**
+	 * Checks that nothing was written to a slot while it was being read.
+	 *
+	 * @param {int} slot - the slot
+	 * @param {int} version - the version from before reading
+	 * @return {boolean} true, if what was read is consistent
+	 */
+	public boolean validate(int slot, int version) {
+		VarHandle.loadLoadFence();
+		return (version & 1) == 0 && this.versions.getOpaque(slot) == version;
+	}
+}
@@ -0,0 +1,135 @@
+package networking.client;
+
+import game.Game;
+
+/**
+ * The Class ServerClock, the client's estimate of the server's tick.
+ * Each pong carries the tick the server was on, which is half a round trip old when
+ * it arrives. Small errors are corrected by running the clock slightly fast or slow,
+ * so it never jumps, and only large errors snap it to the new estimate.
+ *
+ * @author priyangkar ghosh
+ */
+public class ServerClock {
+
+	/** The Constant SNAP_TICKS, errors larger than this snap the clock. */
+	public static final double SNAP_TICKS = 10;
+
+	/** The Constant CORRECTION_GAIN, how much faster the clock runs per tick of error. */
+	private static final double CORRECTION_GAIN = 0.05;
+
+	/** The Constant MAX_SKEW, the most the clock is ever sped up or slowed down by. */
+	private static final double MAX_SKEW = 0.1;
+
+	/** The tick and time the clock was last corrected at. */
+	private double baseTick;
+	private long baseNanos;
+
+	/** The rate the clock runs at, 1 is the server's rate. */
+	private double rate = 1;
+
+	/** The last error measured, in ticks. */
+	private volatile double error = 0;
+
+	/** If the clock has been set yet. */
+	private volatile boolean synced = false;
+
+	/**
+	 * Corrects the clock from a pong.
+	 *
+	 * @param {int} serverTick - the tick the server was on when it replied
+	 * @param {double} rtt - the round trip time of this pong, in milliseconds
+	 */
+	public synchronized void sync(int serverTick, double rtt) {
+		long now = System.nanoTime();
+
+		// the server has moved on by half a round trip since it replied
+		double target = serverTick + (rtt * 1e6 / 2) / getTickNanos();
+
+		if (!this.synced) {
+			this.rebase(target, now);
+			this.synced = true;
+			return;
+		}
+
+		// snaps large errors, and slews small ones out over the next few pings
+		double current = this.getTick(now);
+		this.error = target - current;
+
+		if (Math.abs(this.error) > SNAP_TICKS) {
+			this.rebase(target, now);
+			this.rate = 1;
+		}
+
+		else {
+			this.rebase(current, now);
+			this.rate = 1 + Math.max(-MAX_SKEW, Math.min(MAX_SKEW, this.error * CORRECTION_GAIN));
+		}
+	}
+
+	/**
+	 * Gets the length of a tick, at the rate of the server that was joined.
+	 *
+	 * @return {double} the length of a tick in nanoseconds
+	 */
+	public static double getTickNanos() {
+		return Game.getFixedTimestep() * 1e9;
+	}
+
+	/**
+	 * Moves the base of the clock.
+	 *
+	 * @param {double} tick - the tick at that time
+	 * @param {long} nanos - the time
+	 */
+	private void rebase(double tick, long nanos) {
+		this.baseTick = tick;
+		this.baseNanos = nanos;
+	}
+
+	/**
+	 * Gets the estimated server tick at a time.
+	 *
+	 * @param {long} nanos - the time, from {@link System#nanoTime()}
+	 * @return {double} the tick, with the fraction of the way through it
+	 */
+	public synchronized double getTick(long nanos) {
+		return this.baseTick + (nanos - this.baseNanos) / getTickNanos() * this.rate;
+	}
+
+	/**
+	 * Gets the estimated server tick now.
+	 *
+	 * @return {double} the tick, with the fraction of the way through it
+	 */
+	public double getTick() {
+		return this.getTick(System.nanoTime());
+	}
+
+	/**
+	 * Gets the last error measured.
+	 *
+	 * @return {double} the error in ticks, positive if the clock was behind
+	 */
+	public double getError() {
+		return this.error;
+	}
+
+	/**
+	 * Gets the rate the clock is running at.
+	 *
+	 * @return {double} the rate
+	 */
+	public synchronized double getRate() {
+		return this.rate;
+	}
+
+	/**
+	 * Checks if the clock has been set yet.
+	 *
+	 * @return {boolean} true, if synced
+	 */
+	public boolean isSynced() {
+		return this.synced;
+	}
+}
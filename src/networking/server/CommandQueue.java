@@ -0,0 +1,94 @@
+package networking.server;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The Class CommandQueue, the commands the network threads have decoded for the tick to apply.
+ * Any number of threads add to it without locking, each swapping its command in as the newest,
+ * and only the tick thread takes them off. So the world is only ever changed by the tick, at
+ * the start of it, and the network threads never touch it.
+ *
+ * @author priyangkar ghosh
+ */
+public class CommandQueue {
+
+	/**
+	 * A command decoded from a packet, applied on the tick thread.
+	 */
+	@FunctionalInterface
+	public static interface Command {
+		/**
+		 * Applies the command.
+		 */
+		void apply();
+	}
+
+	/**
+	 * The Class Node, a command and the one added after it.
+	 */
+	private static class Node {
+
+		/** The command, or null once it's been taken. */
+		private Command command;
+
+		/** The node added after this one, or null if it's the newest or still being linked. */
+		private volatile Node next;
+
+		/**
+		 * Instantiates a new node.
+		 *
+		 * @param {Command} command - the command
+		 */
+		public Node(Command command) {
+			this.command = command;
+		}
+	}
+
+	/** The newest node, swapped by the threads adding. */
+	private final AtomicReference<Node> tail;
+
+	/** The node before the oldest command, only read by the tick thread. */
+	private Node head;
+
+	/**
+	 * Instantiates a new command queue.
+	 */
+	public CommandQueue() {
+		this.head = new Node(null);
+		this.tail = new AtomicReference<>(this.head);
+	}
+
+	/**
+	 * Adds a command, from any thread.
+	 *
+	 * @param {Command} command - the command
+	 */
+	public void add(Command command) {
+		Node node = new Node(command);
+
+		// the command is in order once it's swapped in, and visible once it's linked
+		Node previous = this.tail.getAndSet(node);
+		previous.next = node;
+	}
+
+	/**
+	 * Applies every command added so far, in order, on the tick thread.
+	 * A command still being linked is left for the next drain, along with any after it.
+	 *
+	 * @return {int} the number of commands applied
+	 */
+	public int drain() {
+		int count = 0;
+
+		for (Node next = this.head.next; next != null; next = next.next) {
+			Command command = next.command;
+			next.command = null;
+			this.head = next;
+
+			command.apply();
+			count++;
+		}
+
+		return count;
+	}
+}
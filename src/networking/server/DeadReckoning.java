@@ -0,0 +1,113 @@
+package networking.server;
+
+import framework.math.MathExt;
+import game.PlayerPrefs;
+
+/**
+ * The Class DeadReckoning, the state one client extrapolates each entity from.
+ * Mirrors the client's extrapolation from the last update it was sent,
+ * so an entity only has to be sent again once its real state drifts too far from it.
+ *
+ * @author priyangkar ghosh
+ */
+public class DeadReckoning {
+
+	/** The Constant DEFAULT_POSITION_ERROR, in pixels. */
+	public static final double DEFAULT_POSITION_ERROR = 2;
+
+	/** The Constant DEFAULT_ANGLE_ERROR, in radians. */
+	public static final double DEFAULT_ANGLE_ERROR = 0.05;
+
+	/** The Constant DEFAULT_HEALTH_ERROR. */
+	public static final double DEFAULT_HEALTH_ERROR = 1;
+
+	/** The Constant REFRESH_TICKS, an entity is resent after this long in case the last update was lost. */
+	public static final int REFRESH_TICKS = 45;
+
+	/** The allowed errors. */
+	private double positionError, angleError, healthError;
+
+	/** If each entity has been sent since it entered the view. */
+	private boolean[] known = new boolean[ServerManager.ENTITY_COUNT];
+
+	/** The tick each entity was last sent on. */
+	private int[] sentTick = new int[ServerManager.ENTITY_COUNT];
+
+	/** The last sent position, velocity, rotation and angular velocity of each entity. */
+	private double[] x = new double[ServerManager.ENTITY_COUNT];
+	private double[] y = new double[ServerManager.ENTITY_COUNT];
+	private double[] vx = new double[ServerManager.ENTITY_COUNT];
+	private double[] vy = new double[ServerManager.ENTITY_COUNT];
+	private double[] rotation = new double[ServerManager.ENTITY_COUNT];
+	private double[] angularVelocity = new double[ServerManager.ENTITY_COUNT];
+
+	/** The last sent health and shooting of each player. */
+	private double[] health = new double[ServerManager.ENTITY_COUNT];
+	private boolean[] shooting = new boolean[ServerManager.ENTITY_COUNT];
+
+	/**
+	 * Instantiates a new dead reckoning model with the configured errors.
+	 */
+	public DeadReckoning() {
+		this.positionError = PlayerPrefs.get("positionError", DEFAULT_POSITION_ERROR);
+		this.angleError = PlayerPrefs.get("angleError", DEFAULT_ANGLE_ERROR);
+		this.healthError = DEFAULT_HEALTH_ERROR;
+	}
+
+	/**
+	 * Checks if the client's extrapolation of an entity has drifted too far from the real state.
+	 *
+	 * @param {int} index - the entity index
+	 * @param {WorldCapture} world - the state of the world this tick
+	 * @return {boolean} true, if the entity needs to be sent
+	 */
+	public boolean diverged(int index, WorldCapture world) {
+		if (!this.known[index]) return true;
+
+		int elapsed = world.tick - this.sentTick[index];
+		if (elapsed >= REFRESH_TICKS) return true;
+
+		// players are also sent when their health or shooting changes
+		if (Math.abs(world.health[index] - this.health[index]) > this.healthError) return true;
+		if (world.shooting[index] != this.shooting[index]) return true;
+
+		// where the client thinks the entity is
+		double dx = world.x[index] - (this.x[index] + this.vx[index] * elapsed);
+		double dy = world.y[index] - (this.y[index] + this.vy[index] * elapsed);
+		if (dx * dx + dy * dy > this.positionError * this.positionError) return true;
+
+		// how far the client's rotation is off, wrapped to -pi to pi
+		double predicted = this.rotation[index] + this.angularVelocity[index] * elapsed;
+		return Math.abs(Math.IEEEremainder(world.rotation[index] - predicted, MathExt.TWO_PI)) > this.angleError;
+	}
+
+	/**
+	 * Records what was sent, the client extrapolates from this until the next update.
+	 *
+	 * @param {int} index - the entity index
+	 * @param {WorldCapture} world - the state of the world that was sent
+	 */
+	public void sent(int index, WorldCapture world) {
+		this.known[index] = true;
+		this.sentTick[index] = world.tick;
+
+		this.x[index] = world.x[index];
+		this.y[index] = world.y[index];
+		this.vx[index] = world.vx[index];
+		this.vy[index] = world.vy[index];
+		this.rotation[index] = world.rotation[index];
+		this.angularVelocity[index] = world.angularVelocity[index];
+
+		this.health[index] = world.health[index];
+		this.shooting[index] = world.shooting[index];
+	}
+
+	/**
+	 * Forgets an entity, so it is sent in full when it's next relevant.
+	 *
+	 * @param {int} index - the entity index
+	 */
+	public void forget(int index) {
+		this.known[index] = false;
+	}
+}
@@ -0,0 +1,248 @@
+package networking.server;
+
+import framework.common.InputManager;
+import framework.common.InputManager.Controls;
+import networking.Packet;
+
+/**
+ * The Class InputBuffer, holds a client's commands until the tick they're due.
+ * Commands are tagged with the client tick they were made on. The server plays them back
+ * a little behind the newest it has received, every command in order and at most one per
+ * server tick, so commands that arrive in bursts are still applied evenly. How far behind
+ * follows the jitter measured on their arrival. When nothing new is due, the last command
+ * simply stays applied.
+ * Packets are decoded into a batch on the network thread, and only the tick thread stores
+ * and plays them back, so the buffer needs no lock.
+ *
+ * @author priyangkar ghosh
+ */
+public class InputBuffer {
+
+	/** The Constant CAPACITY, how many client ticks of commands are kept, a power of two. */
+	public static final int CAPACITY = 32;
+
+	/** The Constant MIN_DEPTH and MAX_DEPTH, the fewest and most ticks commands are held for. */
+	public static final int MIN_DEPTH = 1, MAX_DEPTH = 8;
+
+	/** The Constant GAIN, how quickly the arrival offset and jitter follow new samples. */
+	private static final double GAIN = 1 / 16d;
+
+	/** The client tick, sequence number, controls, mouse position and press offset of each command. */
+	private int[] ticks = new int[CAPACITY];
+	private int[] sequences = new int[CAPACITY];
+	private boolean[][] controls = new boolean[CAPACITY][Controls.values().length];
+	private double[] x = new double[CAPACITY];
+	private double[] y = new double[CAPACITY];
+	private double[] offsets = new double[CAPACITY];
+
+	/** The newest sequence number received, and the sequence and client tick of the command last applied. */
+	private int received = 0, applied = 0, appliedTick = Integer.MIN_VALUE;
+
+	/** The client tick being played back, or MIN_VALUE before the first command. */
+	private int playback = Integer.MIN_VALUE;
+
+	/** How far the client's ticks are ahead of the server's as commands arrive, and how much that varies. */
+	private double arrival = 0, jitter = 0;
+
+	/** If the arrival offset has been measured yet. */
+	private boolean measured = false;
+
+	/** The number of commands that arrived after they were due, and the number never played. */
+	private long late = 0, skipped = 0;
+
+	/** The number of ticks the last command was repeated because the next one hadn't arrived. */
+	private long underruns = 0;
+
+	/**
+	 * The Class Batch, the commands of one packet, decoded on the network thread.
+	 */
+	public static class Batch {
+
+		/** The number of commands. */
+		private int count;
+
+		/** The sequence number, client tick, controls, mouse position and press offset of each command. */
+		private int[] sequences, ticks;
+		private boolean[][] controls;
+		private double[] x, y, offsets;
+
+		/**
+		 * Decodes a packet of commands, unless it claims more than a client ever sends.
+		 *
+		 * @param {Packet} packet - the packet, positioned at the number of commands
+		 * @return {Batch} the commands, or null if the packet should be dropped
+		 */
+		public static Batch read(Packet packet) {
+			int count = packet.readInt();
+			return (count < 0 || count > InputManager.REDUNDANCY) ? null : new Batch(packet, count);
+		}
+
+		/**
+		 * Decodes a packet of commands.
+		 *
+		 * @param {Packet} packet - the packet, positioned after the number of commands
+		 * @param {int} count - the number of commands, at most REDUNDANCY
+		 */
+		private Batch(Packet packet, int count) {
+			this.count = count;
+			this.sequences = new int[this.count];
+			this.ticks = new int[this.count];
+			this.controls = new boolean[this.count][Controls.values().length];
+			this.x = new double[this.count];
+			this.y = new double[this.count];
+			this.offsets = new double[this.count];
+
+			for (int c = 0; c < this.count; c++) {
+				this.sequences[c] = packet.readInt();
+				this.ticks[c] = packet.readInt();
+				for (int i = 0; i < this.controls[c].length; i++) this.controls[c][i] = packet.readBoolean();
+
+				this.x[c] = packet.readDouble();
+				this.y[c] = packet.readDouble();
+				this.offsets[c] = packet.readDouble();
+			}
+		}
+	}
+
+	/**
+	 * Stores a packet of commands, keeping the ones not already received, on the tick thread.
+	 *
+	 * @param {Batch} batch - the commands
+	 * @param {int} serverTick - the server tick they arrived on
+	 */
+	public void receive(Batch batch, int serverTick) {
+		int newest = Integer.MIN_VALUE;
+
+		for (int c = 0; c < batch.count; c++) {
+			int seq = batch.sequences[c];
+			int tick = batch.ticks[c];
+			newest = Math.max(newest, tick);
+
+			// duplicates are skipped, the rest are stored in the slot of their client tick
+			if (seq <= this.received) continue;
+			int slot = tick & (CAPACITY - 1);
+
+			// it was already due when it arrived
+			if (tick <= this.playback) this.late++;
+
+			this.received = seq;
+			this.ticks[slot] = tick;
+			this.sequences[slot] = seq;
+			System.arraycopy(batch.controls[c], 0, this.controls[slot], 0, this.controls[slot].length);
+			this.x[slot] = batch.x[c];
+			this.y[slot] = batch.y[c];
+			this.offsets[slot] = batch.offsets[c];
+		}
+
+		if (batch.count > 0) this.measure(newest - serverTick);
+	}
+
+	/**
+	 * Measures how far ahead the client's newest command was as it arrived.
+	 *
+	 * @param {int} offset - the client tick minus the server tick
+	 */
+	private void measure(int offset) {
+		if (!this.measured) {
+			this.arrival = offset;
+			this.measured = true;
+			return;
+		}
+
+		this.jitter += (Math.abs(offset - this.arrival) - this.jitter) * GAIN;
+		this.arrival += (offset - this.arrival) * GAIN;
+	}
+
+	/**
+	 * Plays back one server tick, applying the oldest command due that hasn't been applied yet.
+	 *
+	 * @param {int} serverTick - the current server tick
+	 * @param {InputManager} input - the input to apply it to
+	 * @return {boolean} true, if a new command was applied
+	 */
+	public boolean next(int serverTick, InputManager input) {
+		if (!this.measured) return false;
+
+		// follows the target, but never moves back, it just waits when the depth grows
+		int target = (int) Math.round(serverTick + this.arrival) - this.getDepth();
+		if (this.playback == Integer.MIN_VALUE) this.playback = target;
+		else this.playback = Math.max(this.playback, target);
+
+		// finds the oldest command due, so every one is played in order even after a burst
+		int best = -1;
+		int oldest = Math.max(this.appliedTick + 1, this.playback - CAPACITY + 1);
+		for (int tick = oldest; tick <= this.playback && best < 0; tick++) {
+			int slot = tick & (CAPACITY - 1);
+			if (this.ticks[slot] == tick && this.sequences[slot] > this.applied) best = slot;
+		}
+
+		// otherwise the last command stays applied, the buffer ran dry if a keepalive was due by now
+		if (best < 0) {
+			if (this.appliedTick != Integer.MIN_VALUE && this.playback - this.appliedTick > InputManager.KEEPALIVE_TICKS) this.underruns++;
+			return false;
+		}
+
+		// any older commands in between were overwritten before they could be played
+		this.skipped += Math.max(0, this.sequences[best] - this.applied - 1);
+		this.applied = this.sequences[best];
+		this.appliedTick = this.ticks[best];
+		input.apply(this.sequences[best], this.ticks[best], this.controls[best], this.x[best], this.y[best], this.offsets[best]);
+		return true;
+	}
+
+	/**
+	 * Gets how many ticks commands are held for, enough to cover the jitter measured.
+	 *
+	 * @return {int} the depth in ticks
+	 */
+	public int getDepth() {
+		return Math.max(MIN_DEPTH, Math.min(MAX_DEPTH, (int) Math.ceil(2 * this.jitter)));
+	}
+
+	/**
+	 * Gets the jitter of the commands' arrival.
+	 *
+	 * @return {double} the jitter in ticks
+	 */
+	public double getJitter() {
+		return this.jitter;
+	}
+
+	/**
+	 * Gets the number of ticks the last command was repeated because the next one hadn't arrived.
+	 *
+	 * @return {long} the underruns
+	 */
+	public long getUnderruns() {
+		return this.underruns;
+	}
+
+	/**
+	 * Gets the number of commands that arrived after they were due.
+	 *
+	 * @return {long} the commands late
+	 */
+	public long getLate() {
+		return this.late;
+	}
+
+	/**
+	 * Gets the number of commands that were never played.
+	 *
+	 * @return {long} the commands skipped
+	 */
+	public long getSkipped() {
+		return this.skipped;
+	}
+
+	/**
+	 * To string.
+	 *
+	 * @return {String} the depth, jitter and counters
+	 */
+	@Override
+	public String toString() {
+		return String.format("depth %d ticks, jitter %.2f ticks, %d underruns, %d late, %d skipped",
+				this.getDepth(), this.jitter, this.underruns, this.late, this.skipped);
+	}
+}
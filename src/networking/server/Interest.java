@@ -0,0 +1,133 @@
+package networking.server;
+
+import java.util.Arrays;
+
+import framework.components.Component;
+import framework.math.AABB;
+import framework.math.Vector;
+import game.Game;
+
+/**
+ * The Class Interest, the set of entities a client can currently see.
+ * Uses the physics aabb tree to find which entities overlap the client's view,
+ * and tells the client when an entity enters or leaves it.
+ *
+ * @author priyangkar ghosh
+ */
+public class Interest {
+
+	/**
+	 * The Constant VIEW_SIZE, a window's size centered on the client's player. The arena is
+	 * only a window across, so any larger view would hold every entity and cull nothing,
+	 * this way what's more than half a window away isn't sent.
+	 */
+	public static final Vector VIEW_SIZE = new Vector(Game.WINDOW_RES);
+
+	/** The Constant EDGE_FRACTION, how far out in the view the edge band starts. */
+	public static final double EDGE_FRACTION = 0.75;
+
+	/** The Constant EDGE_INTERVAL, how many ticks between updates of entities in the edge band. */
+	public static final int EDGE_INTERVAL = 2;
+
+	/** Half the size of the view inside the edge band. */
+	private static final Vector INNER_HALF_SIZE = VIEW_SIZE.scale(0.5d * EDGE_FRACTION);
+
+	/** The view of the client. */
+	private AABB view = new AABB(Vector.zero(), VIEW_SIZE);
+
+	/** The center of the view. */
+	private Vector center = Vector.zero();
+
+	/** The entities relevant to the client last update, and this update. */
+	private boolean[] relevant = new boolean[ServerManager.ENTITY_COUNT];
+	private boolean[] next = new boolean[ServerManager.ENTITY_COUNT];
+
+	/** The entities in the edge band of the view. */
+	private boolean[] edge = new boolean[ServerManager.ENTITY_COUNT];
+
+	/** The number of updates so far. */
+	private long updates = 0;
+
+	/**
+	 * Instantiates a new interest set.
+	 */
+	public Interest() {
+		// the client starts out showing everything, so anything not in view
+		// will be sent as having left on the first update
+		Arrays.fill(this.relevant, true);
+	}
+
+	/**
+	 * Updates the relevant entities and sends the enter and leave events.
+	 *
+	 * @param {Server} server - the server the client is on
+	 * @param {int} id - the id of the client
+	 * @param {Vector} position - the position the view is centered on
+	 */
+	public void update(Server server, int id, Vector position) {
+		this.updates++;
+		this.center.set(position);
+		this.view.set(position);
+		Arrays.fill(this.next, false);
+
+		// finds every entity whose body overlaps the view
+		for (AABB aabb : server.manager.world.getTree().overlaps(this.view)) {
+			Component body = aabb.getComponent();
+			if (body == null) continue;
+
+			int index = server.manager.indexOf(body.getHost());
+			if (index < 0) continue;
+
+			this.next[index] = true;
+			this.edge[index] = this.inEdge(body.getHost().transform.position);
+		}
+
+		// the client's own player is always relevant
+		this.next[id] = true;
+		this.edge[id] = false;
+
+		// sends the entities which entered or left the view
+		for (int i = 0; i < ServerManager.ENTITY_COUNT; i++) {
+			if (this.next[i] && !this.relevant[i]) ServerSend.entityEntered(server, id, i);
+			else if (!this.next[i] && this.relevant[i]) ServerSend.entityLeft(server, id, i);
+		}
+
+		// swaps the sets
+		boolean[] temp = this.relevant;
+		this.relevant = this.next;
+		this.next = temp;
+	}
+
+	/**
+	 * Checks if an entity is in the view.
+	 *
+	 * @param {int} index - the entity index
+	 * @return {boolean} true, if the entity is relevant
+	 */
+	public boolean isRelevant(int index) {
+		return this.relevant[index];
+	}
+
+	/**
+	 * Checks if an entity should be sent to the client this tick.
+	 * Entities in the edge band of the view are only sent every few ticks.
+	 *
+	 * @param {int} index - the entity index
+	 * @return {boolean} true, if the entity should be sent
+	 */
+	public boolean shouldSend(int index) {
+		if (!this.relevant[index]) return false;
+		return !this.edge[index] || this.updates % EDGE_INTERVAL == 0;
+	}
+
+	/**
+	 * Checks if a position is in the edge band of the view.
+	 *
+	 * @param {Vector} position - the position
+	 * @return {boolean} true, if it is in the edge band
+	 */
+	private boolean inEdge(Vector position) {
+		return Math.abs(position.x - this.center.x) > INNER_HALF_SIZE.x
+			|| Math.abs(position.y - this.center.y) > INNER_HALF_SIZE.y;
+	}
+}
@@ -0,0 +1,195 @@
+package networking.server;
+
+import framework.components.Rigidbody;
+import framework.physics.Vertex;
+import game.Game;
+import networking.Latency;
+
+/**
+ * The Class LagCompensation, the shapes every player had over roughly the last second.
+ * A client shoots at players where it saw them, which is behind where the server has them
+ * by the trip its input took and the delay remote entities are shown at. Shots are tested
+ * against the players as they were that far back, so what hits on the shooter's screen hits.
+ *
+ * @author priyangkar ghosh
+ */
+public class LagCompensation {
+
+	/** The Constant HISTORY, how many ticks of shapes are kept, a power of two. */
+	public static final int HISTORY = 64;
+
+	/** The Constant MAX_REWIND, the furthest back a shot is tested, in seconds. */
+	public static final double MAX_REWIND = 1;
+
+	/** The Constant MAX_VERTICES, the most vertices a player's shape has. */
+	private static final int MAX_VERTICES = 8;
+
+	/** The tick each slot was recorded on. */
+	private int[] ticks = new int[HISTORY];
+
+	/** The number of vertices of each player in each slot, 0 if it didn't exist. */
+	private int[][] count = new int[HISTORY][Server.MAX_PLAYERS];
+
+	/** The vertices of each player in each slot. */
+	private double[][][] x = new double[HISTORY][Server.MAX_PLAYERS][MAX_VERTICES];
+	private double[][][] y = new double[HISTORY][Server.MAX_PLAYERS][MAX_VERTICES];
+
+	/** The bounds of each player in each slot, so most shots are rejected without the full test. */
+	private double[][] minX = new double[HISTORY][Server.MAX_PLAYERS];
+	private double[][] maxX = new double[HISTORY][Server.MAX_PLAYERS];
+	private double[][] minY = new double[HISTORY][Server.MAX_PLAYERS];
+	private double[][] maxY = new double[HISTORY][Server.MAX_PLAYERS];
+
+	/** The latest tick recorded, or -1 if none have been. */
+	private int latest = -1;
+
+	/** The match whose players are recorded. */
+	private ServerManager manager;
+
+	/**
+	 * Instantiates a new lag compensation history.
+	 *
+	 * @param {ServerManager} manager - the match whose players are recorded
+	 */
+	public LagCompensation(ServerManager manager) {
+		this.manager = manager;
+		this.clear();
+	}
+
+	/**
+	 * Records the shape of every player, once a tick on the tick thread.
+	 *
+	 * @param {int} tick - the current tick
+	 */
+	public void record(int tick) {
+		int slot = tick & (HISTORY - 1);
+		this.ticks[slot] = tick;
+		this.latest = tick;
+
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			Rigidbody body = this.manager.getBody(i);
+			this.count[slot][i] = 0;
+			if (body == null) continue;
+
+			Vertex[] vertices = body.getVertices();
+			int n = Math.min(vertices.length, MAX_VERTICES);
+			double lowX = Double.MAX_VALUE, highX = -Double.MAX_VALUE;
+			double lowY = Double.MAX_VALUE, highY = -Double.MAX_VALUE;
+
+			for (int j = 0; j < n; j++) {
+				double vx = this.x[slot][i][j] = vertices[j].position.x;
+				double vy = this.y[slot][i][j] = vertices[j].position.y;
+				lowX = Math.min(lowX, vx); highX = Math.max(highX, vx);
+				lowY = Math.min(lowY, vy); highY = Math.max(highY, vy);
+			}
+
+			this.minX[slot][i] = lowX; this.maxX[slot][i] = highX;
+			this.minY[slot][i] = lowY; this.maxY[slot][i] = highY;
+			this.count[slot][i] = n;
+		}
+	}
+
+	/**
+	 * Gets how many ticks back a client's shots are tested.
+	 *
+	 * @param {SClient} sc - the client that shot
+	 * @return {int} the ticks to rewind, at most the max rewind
+	 */
+	public static int rewind(SClient sc) {
+		if (sc == null) return 0;
+		Latency latency = sc.latency;
+
+		// the client sees the server's clock, so its input is only behind by the trip here
+		// and the ticks it waits in the input buffer, and it shows other players behind that
+		// by the interpolation delay it sent on admission
+		double ms = ((latency.getSamples() > 0) ? latency.getRtt() / 2 : 0) + sc.interpolationDelay;
+		int ticks = (int) Math.round(ms / (Game.getFixedTimestep() * 1000)) + sc.inputs.getDepth();
+		return Math.max(0, Math.min(ticks, getMaxRewind()));
+	}
+
+	/**
+	 * Gets the furthest back a shot is tested at the tick rate, no further than the ticks kept.
+	 *
+	 * @return {int} the max rewind in ticks
+	 */
+	public static int getMaxRewind() {
+		return Math.min(HISTORY - 1, (int) Math.round(MAX_REWIND * Game.getTickRate()));
+	}
+
+	/**
+	 * Finds a player a square overlapped at a past tick.
+	 *
+	 * @param {int} tick - the tick to test at, moved to the oldest kept if it's too far back
+	 * @param {double} centerX - the x of the square's center
+	 * @param {double} centerY - the y of the square's center
+	 * @param {double} halfSize - half the width of the square
+	 * @param {int} ignore - the id of the player to skip, or -1
+	 * @return {int} the id of the player hit, or -1 if none were
+	 */
+	public int hit(int tick, double centerX, double centerY, double halfSize, int ignore) {
+		if (this.latest < 0) return -1;
+
+		// stays inside what's been recorded
+		tick = Math.max(Math.min(tick, this.latest), this.latest - getMaxRewind());
+		int slot = tick & (HISTORY - 1);
+		if (this.ticks[slot] != tick) return -1;
+
+		double lowX = centerX - halfSize, highX = centerX + halfSize;
+		double lowY = centerY - halfSize, highY = centerY + halfSize;
+
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			int n = this.count[slot][i];
+			if (n == 0 || i == ignore) continue;
+
+			// the square's axes, which the bounds already cover
+			if (highX < this.minX[slot][i] || lowX > this.maxX[slot][i]) continue;
+			if (highY < this.minY[slot][i] || lowY > this.maxY[slot][i]) continue;
+
+			if (this.overlaps(this.x[slot][i], this.y[slot][i], n, lowX, lowY, highX, highY)) return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Checks if a shape overlaps a square on each of the shape's edge normals.
+	 *
+	 * @param {double[]} px - the x of each vertex
+	 * @param {double[]} py - the y of each vertex
+	 * @param {int} n - the number of vertices
+	 * @param {double} lowX - the left of the square
+	 * @param {double} lowY - the top of the square
+	 * @param {double} highX - the right of the square
+	 * @param {double} highY - the bottom of the square
+	 * @return {boolean} true, if they overlap
+	 */
+	private boolean overlaps(double[] px, double[] py, int n, double lowX, double lowY, double highX, double highY) {
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1 == n) ? 0 : i + 1;
+			double axisX = py[i] - py[j], axisY = px[j] - px[i];
+
+			// projects the shape onto the axis
+			double shapeMin = Double.MAX_VALUE, shapeMax = -Double.MAX_VALUE;
+			for (int k = 0; k < n; k++) {
+				double d = px[k] * axisX + py[k] * axisY;
+				shapeMin = Math.min(shapeMin, d);
+				shapeMax = Math.max(shapeMax, d);
+			}
+
+			// the square's projection is its center's plus its half extents along the axis
+			double center = (lowX + highX) / 2 * axisX + (lowY + highY) / 2 * axisY;
+			double extent = (highX - lowX) / 2 * Math.abs(axisX) + (highY - lowY) / 2 * Math.abs(axisY);
+			if (center + extent < shapeMin || center - extent > shapeMax) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Forgets every recorded tick.
+	 */
+	public void clear() {
+		for (int i = 0; i < HISTORY; i++) this.ticks[i] = -1;
+		this.latest = -1;
+	}
+}
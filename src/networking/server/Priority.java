@@ -0,0 +1,147 @@
+package networking.server;
+
+import game.PlayerPrefs;
+import networking.Packet;
+
+/**
+ * The Class Priority, a priority accumulator for the entities sent to one client.
+ * Every tick each relevant entity gains priority based on its type, distance and speed,
+ * the highest priority entities are sent until the client's byte budget is used,
+ * and the entities that were sent go back to zero.
+ * Entities that miss out keep accumulating, so nothing is starved for long.
+ *
+ * @author priyangkar ghosh
+ */
+public class Priority {
+
+	/** The Constant DEFAULT_BUDGET, the bytes per tick a client is sent, at most one datagram. */
+	public static final int DEFAULT_BUDGET = Packet.BUFFER_ALLOCATE;
+
+	/** The Constant SELF_SIZE, the acknowledged tick, health, shooting, transform and velocities of the client's own player. */
+	public static final int SELF_SIZE = Integer.BYTES + Double.BYTES + 1 + 8 * Double.BYTES;
+
+	/** The Constant HEADER_SIZE, the packet id, the tick, the client's own player and the two entry counts. */
+	public static final int HEADER_SIZE = 4 * Integer.BYTES + SELF_SIZE;
+
+	/** The Constant PLAYER_SIZE, the id, health, shooting, transform and velocities of a player. */
+	public static final int PLAYER_SIZE = Integer.BYTES + Double.BYTES + 1 + 8 * Double.BYTES;
+
+	/** The Constant ASTEROID_SIZE, the index, transform and velocities of an asteroid. */
+	public static final int ASTEROID_SIZE = Integer.BYTES + 8 * Double.BYTES;
+
+	/** The type weights, players matter more than asteroids. */
+	private static final double PLAYER_WEIGHT = 2;
+	private static final double ASTEROID_WEIGHT = 1;
+
+	/** The Constant DISTANCE_SCALE, the distance in pixels at which priority halves. */
+	private static final double DISTANCE_SCALE = 320;
+
+	/** The Constant SPEED_SCALE, the speed in pixels per tick at which priority doubles. */
+	private static final double SPEED_SCALE = 4;
+
+	/** The accumulated priority of each entity. */
+	private double[] accumulated = new double[ServerManager.ENTITY_COUNT];
+
+	/** The entities chosen this tick, highest priority first. */
+	private int[] order = new int[ServerManager.ENTITY_COUNT];
+
+	/** The bytes per tick this client can be sent. */
+	private int budget;
+
+	/**
+	 * Instantiates a new priority accumulator with the configured budget.
+	 */
+	public Priority() {
+		this.setBudget(PlayerPrefs.get("bytesPerTick", DEFAULT_BUDGET));
+	}
+
+	/**
+	 * Accumulates priority, then chooses the entities to send this tick.
+	 * Only entities the client can see, and whose extrapolation has drifted, are candidates.
+	 *
+	 * @param {int} id - the id of the client
+	 * @param {WorldCapture} world - the state of the world this tick
+	 * @param {Interest} interest - the entities the client can see
+	 * @param {DeadReckoning} reckoning - what the client is extrapolating
+	 * @return {int} the number of entities chosen
+	 */
+	public int select(int id, WorldCapture world, Interest interest, DeadReckoning reckoning) {
+		int candidates = 0;
+
+		for (int i = 0; i < ServerManager.ENTITY_COUNT; i++) {
+			// the client's own player is always sent in the header
+			if (i == id) continue;
+			
+			// entities out of view are sent in full when they come back
+			if (!world.exists[i] || !interest.isRelevant(i)) {
+				reckoning.forget(i);
+				continue;
+			}
+			if (!interest.shouldSend(i)) continue;
+			
+			// skips entities the client can still extrapolate well enough
+			if (!reckoning.diverged(i, world)) continue;
+
+			// weights the entity by its type
+			double weight = (i < Server.MAX_PLAYERS) ? PLAYER_WEIGHT : ASTEROID_WEIGHT;
+
+			// closer and faster entities gain priority quicker
+			double dx = world.x[i] - world.x[id], dy = world.y[i] - world.y[id];
+			double distance = Math.sqrt(dx * dx + dy * dy);
+			weight *= DISTANCE_SCALE / (DISTANCE_SCALE + distance);
+			weight *= 1 + world.speed[i] / SPEED_SCALE;
+
+			this.accumulated[i] += weight;
+
+			// inserts the candidate in order of priority using insertion sort
+			int j = candidates++ - 1;
+			while (j >= 0 && this.accumulated[this.order[j]] < this.accumulated[i]) {
+				this.order[j + 1] = this.order[j];
+				j--;
+			}
+			this.order[j + 1] = i;
+		}
+
+		// takes the highest priority entities until the budget runs out
+		int used = HEADER_SIZE, chosen = 0;
+		for (int k = 0; k < candidates; k++) {
+			int index = this.order[k];
+			int size = (index < Server.MAX_PLAYERS) ? PLAYER_SIZE : ASTEROID_SIZE;
+			if (used + size > this.budget) continue;
+
+			used += size;
+			this.order[chosen++] = index;
+			this.accumulated[index] = 0;
+		}
+
+		return chosen;
+	}
+
+	/**
+	 * Gets a chosen entity.
+	 *
+	 * @param {int} i - the position in the chosen entities
+	 * @return {int} the entity index
+	 */
+	public int get(int i) {
+		return this.order[i];
+	}
+
+	/**
+	 * Sets the budget, it can never be more than one datagram.
+	 *
+	 * @param {int} budget - the bytes per tick
+	 */
+	public void setBudget(int budget) {
+		this.budget = Math.max(HEADER_SIZE, Math.min(budget, Packet.BUFFER_ALLOCATE));
+	}
+
+	/**
+	 * Gets the budget.
+	 *
+	 * @return {int} the bytes per tick
+	 */
+	public int getBudget() {
+		return this.budget;
+	}
+}
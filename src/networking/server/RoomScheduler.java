@@ -0,0 +1,146 @@
+package networking.server;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import game.Game;
+import game.PlayerPrefs;
+
+/**
+ * The Class RoomScheduler, ticks every room in the process on a fixed pool of threads.
+ * There are no more threads than cores, each with its own clock, and a room is given
+ * to the thread with the fewest rooms when it starts. It stays on that thread until it
+ * stops, so its world is only ever touched by one thread and stays in that core's cache
+ * for as long as the operating system keeps the thread there.
+ *
+ * @author priyangkar ghosh
+ */
+public class RoomScheduler {
+
+	/** The threads the rooms are ticked on. */
+	private Worker[] workers;
+
+	/** The instance. */
+	private static RoomScheduler instance;
+
+	/**
+	 * singleton driver method.
+	 *
+	 * @return {RoomScheduler} the scheduler instance
+	 */
+	public synchronized static RoomScheduler instance() {
+		if (instance == null) instance = new RoomScheduler();
+		return instance;
+	}
+
+	/**
+	 * Instantiates a new room scheduler, with a thread for each core unless the player prefs ask for fewer.
+	 */
+	private RoomScheduler() {
+		int cores = Runtime.getRuntime().availableProcessors();
+		this.workers = new Worker[Math.max(1, Math.min(PlayerPrefs.get("roomThreads", cores), cores))];
+	}
+
+	/**
+	 * Adds a room, to the thread with the fewest rooms.
+	 *
+	 * @param {Server} room - the room
+	 */
+	public synchronized void add(Server room) {
+		Worker least = null;
+		for (int i = 0; i < this.workers.length; i++) {
+			// the threads are only started once there are rooms for them
+			if (this.workers[i] == null) this.workers[i] = new Worker(i);
+			if (least == null || this.workers[i].rooms.size() < least.rooms.size()) least = this.workers[i];
+		}
+
+		least.add(room);
+	}
+
+	/**
+	 * Removes a room, it isn't ticked again once the tick in progress is done.
+	 *
+	 * @param {Server} room - the room
+	 */
+	public synchronized void remove(Server room) {
+		for (Worker worker : this.workers)
+			if (worker != null && worker.rooms.remove(room) && worker.rooms.isEmpty())
+				System.out.println("[SERVER] Clock: " + worker.clock);
+	}
+
+	/**
+	 * The Class Worker, one thread and the rooms it ticks.
+	 */
+	private static class Worker implements Runnable {
+
+		/** The rooms ticked on this thread, in the order they were added. */
+		private CopyOnWriteArrayList<Server> rooms = new CopyOnWriteArrayList<>();
+
+		/** The clock the ticks are scheduled by. */
+		private TickClock clock = new TickClock(Game.getTickRate());
+
+		/** The thread. */
+		private Thread thread;
+
+		/**
+		 * Instantiates a new worker, its thread doesn't keep the process alive.
+		 *
+		 * @param {int} index - the index of the worker
+		 */
+		public Worker(int index) {
+			this.thread = new Thread(this, "server tick " + index);
+			this.thread.setPriority(Thread.MAX_PRIORITY);
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		/**
+		 * Adds a room, waking the thread if it had none.
+		 *
+		 * @param {Server} room - the room
+		 */
+		public void add(Server room) {
+			this.rooms.add(room);
+			LockSupport.unpark(this.thread);
+		}
+
+		/**
+		 * Runs the thread, ticking each of its rooms each time the clock says a tick is due.
+		 */
+		@Override
+		public void run() {
+			this.clock.start();
+			while (true) {
+				// sleeps while there's nothing to tick, then starts the schedule afresh at the game's rate
+				if (this.rooms.isEmpty()) {
+					LockSupport.park(this);
+					this.clock.start(Game.getTickRate());
+					continue;
+				}
+
+				this.clock.await();
+				for (Server room : this.rooms) this.tick(room);
+			}
+		}
+
+		/**
+		 * Ticks a room. A room whose tick throws is stopped on its own, so the others on this
+		 * thread keep running rather than the thread dying with all of them.
+		 *
+		 * @param {Server} room - the room
+		 */
+		private void tick(Server room) {
+			try { room.tick(); }
+
+			catch (RuntimeException e) {
+				System.out.println("[SERVER] Room on port " + room.getPort() + " failed, stopping it.");
+				e.printStackTrace();
+
+				// it's taken off the thread first, so it isn't ticked again even if stopping fails
+				this.rooms.remove(room);
+				try { room.stop(); }
+				catch (RuntimeException f) { f.printStackTrace(); }
+			}
+		}
+	}
+}
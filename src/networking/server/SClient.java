@@ -7,7 +7,8 @@ import java.net.InetAddress;
 import java.net.Socket;
 
 import gameobjects.SPlayer;
-import networking.Packet;
+import networking.Frame;
+import networking.Latency;
 
 /**
  * The Class SClient (server-side client).
@@ -16,6 +17,9 @@ import networking.Packet;
  */
 public class SClient implements Runnable {
 
+	/** The server this client is connected to. */
+	private Server server;
+
 	/** The socket this client is connected to. */
 	private Socket socket;
 
@@ -33,18 +37,48 @@ public class SClient implements Runnable {
 
 	/** The player. */
 	public SPlayer player;
+	
+	/** The entities this client can see. */
+	public Interest interest = new Interest();
+	
+	/** The priority of the entities this client is sent. */
+	public Priority priority = new Priority();
+	
+	/** The state this client extrapolates each entity from. */
+	public DeadReckoning reckoning = new DeadReckoning();
+
+	/** The commands from this client waiting until they're due. */
+	public InputBuffer inputs = new InputBuffer();
+
+	/** The server tick the latest input command from this client was applied on. */
+	public int inputTick = 0;
+	
+	/** How far behind the server this client shows remote entities, in milliseconds. */
+	public double interpolationDelay = 0;
+	
+	/** The round trip time to this client. */
+	public Latency latency = new Latency();
+	
+	/** How often this client is sent a snapshot. */
+	public SendRate rate;
 
 	/** If this client thread is running. */
 	private boolean running = false;
+	
+	/** Reads the framed packets from the input stream. */
+	private Frame frame;
 
 	/**
 	 * Instantiates a new server-side client.
 	 *
+	 * @param {Server} server - the server
 	 * @param {int} id - the id
 	 * @param {Socket} socket - the socket
 	 */
-	public SClient(int id, Socket socket) {
+	public SClient(Server server, int id, Socket socket) {
+		this.server = server;
 		this.id = id;
+		this.rate = new SendRate(id);
 		this.socket = socket;
 		this.address = this.socket.getInetAddress();
 
@@ -52,6 +86,7 @@ public class SClient implements Runnable {
 			// initializes input and output streams
             this.out = new BufferedOutputStream(socket.getOutputStream());
             this.in = new BufferedInputStream(socket.getInputStream());
+            this.frame = new Frame(this.in);
 		}
 
 		catch (IOException ex) {
@@ -67,7 +102,7 @@ public class SClient implements Runnable {
 		this.running = true;
 		
 		// admits the client to the server
-		ServerSend.admit(this.id, "Welcome to the server.");
+		ServerSend.admit(this.server, this.id, "Welcome to the server.");
 		
 		// constantly receives tcp data from the client
 		while (this.running) tcpReceive();
@@ -96,12 +131,13 @@ public class SClient implements Runnable {
 		this.out = null;
 		this.socket = null;
 		
-		// removes the body from the world
-		ServerManager.world.removeBody(this.player.body);
-		
-		// destroys the player game object
-		this.player.destroy();
+		// the player is only created once the admission is received
+		if (this.player == null) return;
 		this.player = null;
+		
+		// in lockstep the player stays until the round restarts without it, on a tick every client sees
+		if (this.server.manager.isLockstep()) this.server.manager.requestRestart();
+		else this.server.manager.removePlayer(this.id);
 	}
 	
 	/**
@@ -109,17 +145,19 @@ public class SClient implements Runnable {
 	 */
 	private void tcpReceive() {
 		try {
-			// initializes the buffer
-			byte[] buffer = new byte[Packet.BUFFER_ALLOCATE];
-			
-			// blocks until it gets some data
-			in.read(buffer);
-			
-			// handles the data
-			ServerHandle.handle(this.id, buffer);
+			// blocks until it gets a whole frame, then handles it
+			ServerHandle.handle(this.server, this.id, this.frame.read());
+		}
+		
+		// the client closed the connection or it failed, either way nothing more can be read,
+		// so it's removed on the next tick unless it's already being closed or its slot reused
+		catch (IOException e) {
+			if (!this.running) return;
+			this.running = false;
+			this.server.commands.add(() -> {
+				if (this.server.getClient(this.id) == this) ServerHandle.disconnect(this.server, this.id);
+			});
 		}
-
-		catch (IOException e) { }
 	}
 	
 	/**
@@ -0,0 +1,98 @@
+package networking.server;
+
+import networking.Latency;
+
+/**
+ * The Class SendRate, how often one client is sent a snapshot.
+ * Backs off to every second or fourth tick when the client's link shows loss,
+ * queuing or a long round trip, and steps back up once it has been healthy for a while.
+ * Snapshots are extrapolated on the client, so a slower rate only costs accuracy.
+ *
+ * @author priyangkar ghosh
+ */
+public class SendRate {
+
+	/** The Constant INTERVALS, the ticks between snapshots at each level. */
+	public static final int[] INTERVALS = { 1, 2, 4 };
+
+	/** The thresholds past which the rate backs off. */
+	private static final double BACKOFF_LOSS = 0.1;
+	private static final double BACKOFF_QUEUE_DELAY = 50;
+	private static final double BACKOFF_RTT = 250;
+
+	/** The thresholds under which the rate recovers. */
+	private static final double RECOVER_LOSS = 0.02;
+	private static final double RECOVER_QUEUE_DELAY = 20;
+	private static final double RECOVER_RTT = 150;
+
+	/** The Constant RECOVER_SAMPLES, healthy samples in a row needed before stepping up. */
+	private static final int RECOVER_SAMPLES = 4;
+
+	/** The current level, an index into the intervals. */
+	private volatile int level = 0;
+
+	/** The healthy samples in a row so far. */
+	private int healthy = 0;
+
+	/** Spreads clients sending at the same interval across different ticks. */
+	private int offset;
+
+	/**
+	 * Instantiates a new send rate.
+	 *
+	 * @param {int} id - the id of the client
+	 */
+	public SendRate(int id) {
+		this.offset = id;
+	}
+
+	/**
+	 * Adapts the rate to the latest measurements of the client's link.
+	 *
+	 * @param {int} id - the id of the client
+	 * @param {Latency} latency - the latency to the client
+	 */
+	public void adapt(int id, Latency latency) {
+		double loss = latency.getLoss(), queue = latency.getQueueDelay(), rtt = latency.getRtt();
+
+		// backs off straight away when the link is struggling
+		if (loss > BACKOFF_LOSS || queue > BACKOFF_QUEUE_DELAY || rtt > BACKOFF_RTT) {
+			this.healthy = 0;
+			if (this.level < INTERVALS.length - 1) {
+				this.level++;
+				System.out.printf("[SERVER] Client %d backed off to every %d ticks, %s\n", id, this.getInterval(), latency);
+			}
+			return;
+		}
+
+		// only recovers once the link has been healthy for a few samples
+		if (loss < RECOVER_LOSS && queue < RECOVER_QUEUE_DELAY && rtt < RECOVER_RTT) {
+			if (++this.healthy < RECOVER_SAMPLES || this.level == 0) return;
+
+			this.healthy = 0;
+			this.level--;
+			System.out.printf("[SERVER] Client %d recovered to every %d ticks\n", id, this.getInterval());
+		}
+
+		else this.healthy = 0;
+	}
+
+	/**
+	 * Checks if the client is due a snapshot this tick.
+	 *
+	 * @param {int} tick - the tick
+	 * @return {boolean} true, if a snapshot should be sent
+	 */
+	public boolean isDue(int tick) {
+		return (tick + this.offset) % this.getInterval() == 0;
+	}
+
+	/**
+	 * Gets the ticks between snapshots.
+	 *
+	 * @return {int} the interval
+	 */
+	public int getInterval() {
+		return INTERVALS[this.level];
+	}
+}
@@ -12,19 +12,25 @@ import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.Base64;
 
+import game.Game;
 import game.PlayerPrefs;
 import networking.Packet;
+import networking.Traffic;
 
 /**
- * The Class Server singleton.
+ * The Class Server, one room a match is played in, with its own sockets, clients and world.
+ * The instance is the room the game hosts, a dedicated server can run many rooms at once.
  * 
  * @author priyangkar ghosh
  */
-public class Server implements Runnable {
+public class Server {
 
-	/** The Constant MAX_PLAYERS. */
+	/** The Constant MAX_PLAYERS, the most players any server can have, the clients have room for this many. */
 	public static final int MAX_PLAYERS = 10;
 	
+	/** The most players this server lets in. */
+	private int maxPlayers = MAX_PLAYERS;
+	
 	/** The code and port number. */
 	private String code; 
 	private int port;
@@ -33,15 +39,22 @@ public class Server implements Runnable {
 	protected TCP tcp;	
 	protected UDP udp;
 
-	/** The outstanding ticks. */
-	private int ticks = 0;
+	/** The commands the network threads have decoded, applied at the start of each tick. */
+	public final CommandQueue commands = new CommandQueue();
+
+	/** The packets and bytes sent to and received from each of this room's clients, by type. */
+	public final Traffic sent = new Traffic("server sent", Packet.Server.values(), MAX_PLAYERS);
+	public final Traffic received = new Traffic("server received", Packet.Client.values(), MAX_PLAYERS);
+
+	/** Held while a tick runs, so stopping waits for the tick in progress. */
+	private final Object tickLock = new Object();
 
 	/** The active. */
-	private boolean active = false;
+	private volatile boolean active = false;
 
 	/** The clients and the server manager. */
 	private SClient[] clients = new SClient[MAX_PLAYERS];	
-	public ServerManager manager = new ServerManager();
+	public final ServerManager manager = new ServerManager(this);
 
 	/** The instance. */
 	private volatile static Server instance;
@@ -59,22 +72,37 @@ public class Server implements Runnable {
 	/**
 	 * Instantiates a new server.
 	 */
-	private Server() { }
+	public Server() { }
 
 	/**
-	 * Starts the server.
+	 * Starts the server, on the port the player prefs ask for.
 	 */
 	public void start() {
+		this.start(PlayerPrefs.get("port", 0));
+	}
+
+	/**
+	 * Starts the server.
+	 *
+	 * @param {int} port - the port, or 0 for any free port
+	 */
+	public void start(int port) {
 		System.out.println("[SERVER] Started new server. ");
 		
-		// gets a port if the user specified one
-		this.tcp = new TCP(PlayerPrefs.get("port", 0));
+		// steps the game at the tick rate the user specified, the clients are sent it on admission
+		double tickRate = PlayerPrefs.get("tickRate", 0d);
+		Game.setFixedTimestep((tickRate > 0) ? 1 / tickRate : Game.DEFAULT_FIXED_TIMESTEP);
+		
+		// gets a player limit if the user specified one
+		this.tcp = new TCP(port);
+		this.maxPlayers = Math.max(1, Math.min(PlayerPrefs.get("maxPlayers", MAX_PLAYERS), MAX_PLAYERS));
 		
 		// gets the port from the tcp socket
 		this.port = this.tcp.socket.getLocalPort();
 		
 		// creates a udp socket on this port
 		this.udp = new UDP(this.port);
+		this.active = true;
 		
 		// gets the code, if it can't get a valid code the server is stopped
 		try { this.code = setCode(); } 
@@ -85,42 +113,25 @@ public class Server implements Runnable {
 			return;
 		}
 		
-		// starts the server, server tcp, and server udp threads
-		new Thread(this).start();
+		// initializes the server manager class for this server instance, before it's ticked
+		this.manager.init();
+		
+		// starts the server tcp and server udp threads
 		new Thread(tcp).start();
 		new Thread(udp).start();
+		System.out.printf("[SERVER] Server listening on port %d.\n", this.port);
+		System.out.println("[SERVER] Code: " + this.code);
 		
-		// initializes the server manager class for this server instance
-		ServerManager.init();
+		// the room is ticked at its own rate on one of the scheduler's threads, whatever the game loop is doing
+		RoomScheduler.instance().add(this);
 	}
 
 	/**
-	 * Ticks the server.
+	 * Ticks the room, called by the scheduler each time a tick is due.
 	 */
 	public void tick() {
-		if (this.active) this.ticks++;
-	}
-
-	/**
-	 * Runs this thread.
-	 */
-	@Override
-	public void run() {
-		// starts running this thread
-		this.active = true;
-		System.out.printf("[SERVER] Server listening on port %d.\n", this.port);
-		System.out.println("[SERVER] Code: " + this.code);
-		
-		while (this.active) {
-			Thread.yield();
-			try { Thread.sleep(1); }
-			catch (Exception e) {  }
-
-			while (this.ticks > 0) {
-				// ticks the server
-				ServerManager.tick();
-				this.ticks--;
-			}
+		synchronized (this.tickLock) {
+			if (this.active) this.manager.tick();
 		}
 	}
 
@@ -131,13 +142,15 @@ public class Server implements Runnable {
 		if (!this.active) return;
 		
 		// sends the server stopped packet to all the clients
-		ServerSend.serverStopped();
-		Server.instance = null;
+		ServerSend.serverStopped(this);
+		if (Server.instance == this) Server.instance = null;
 		
-		// stops running all the threads
+		// stops running all the threads, waiting for the tick in progress to finish
 		this.active = false;
 		this.tcp.running = false;
 		this.udp.running = false;
+		RoomScheduler.instance().remove(this);
+		synchronized (this.tickLock) { }
 
 		try {
 			// closes this servers open sockets
@@ -158,8 +171,15 @@ public class Server implements Runnable {
 		this.tcp = null;
 		this.udp = null;
 		
+		// dumps where this room's bandwidth went, then starts counting afresh
+		System.out.printf("[SERVER] Traffic of the room on port %d:\n", this.port);
+		this.sent.dump();
+		this.received.dump();
+		this.sent.reset();
+		this.received.reset();
+		
 		// resets the server manager
-		ServerManager.reset();
+		this.manager.reset();
 		System.out.println("[SERVER] Server stopped.");
 	}
 
@@ -170,10 +190,10 @@ public class Server implements Runnable {
 	 * @return {boolean} true, if the client was added successfully
 	 */
 	public boolean addClient(Socket socket) {
-		for (int i = 0; i < Server.MAX_PLAYERS; i++)
+		for (int i = 0; i < this.maxPlayers; i++)
 			if (this.clients[i] == null) {
 				// adds this client if its null
-				this.clients[i] = new SClient(i, socket);
+				this.clients[i] = new SClient(this, i, socket);
 				new Thread(clients[i]).start();
 				return true;
 			}
@@ -256,7 +276,7 @@ public class Server implements Runnable {
 					System.out.println("[SERVER] Incoming connection from {" + socket.getInetAddress() + "}...");
 					
 					// adds the client
-					if (Server.instance().addClient(socket)) continue;
+					if (Server.this.addClient(socket)) continue;
 					
 					// if the client wasn't connected the socket is closed
 					System.out.println("[SERVER] Client could not connect.");
@@ -303,20 +323,23 @@ public class Server implements Runnable {
 		@Override
 		public void run() {
 			this.running = true;
+			
+			// allocates the buffer once, and reuses it for every datagram
+			byte[] buffer = new byte[Packet.BUFFER_ALLOCATE];
+			Packet packet = new Packet(buffer);
+			DatagramPacket datagramPacket = new DatagramPacket(
+					buffer, Packet.BUFFER_ALLOCATE
+			);
 
 			while (this.running) {
 				try {
-					// allocates the buffer
-					byte[] buffer = new byte[Packet.BUFFER_ALLOCATE];
-					DatagramPacket datagramPacket = new DatagramPacket(
-							buffer, Packet.BUFFER_ALLOCATE
-					);
-					
-					// receives the udp packet
+					// receives the udp packet, making room for a full one
+					datagramPacket.setLength(buffer.length);
 					this.socket.receive(datagramPacket);
 					
 					// handles the packet
-					ServerHandle.handle(-1, buffer);
+					packet.setReceived(datagramPacket.getLength());
+					ServerHandle.handle(Server.this, -1, packet);
 				}
 
 				catch (IOException e) { }
@@ -364,7 +387,10 @@ public class Server implements Runnable {
 	 */
 	private String setCode() throws IOException {
 		String internal = getInternalIpAddress();
-		String external = getExternalIpAddress();
+		
+		// a server with a known public address doesn't have to look it up
+		String external = PlayerPrefs.get("address", "");
+		if (external.isEmpty()) external = getExternalIpAddress();
 		return Base64.getEncoder().encodeToString(
 				(internal + "~" + external + "~" + port).getBytes()
 		);
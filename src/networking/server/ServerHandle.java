@@ -1,96 +1,208 @@
 package networking.server;
 
-import gameobjects.SPlayer;
 import networking.Packet;
 
 /**
  * The Class ServerHandle, handles packets sent from client.
+ * Handlers run on the network threads, so they only decode the packet and queue what it
+ * asks for, which the tick applies. Only pings, which touch nothing in the world, are
+ * answered straight away.
  * 
  * @author priyangkar ghosh
  */
 public class ServerHandle {
 
+	/**
+	 * A handler for one type of packet.
+	 */
+	@FunctionalInterface
+	private static interface Handler {
+		/**
+		 * Handles the packet.
+		 *
+		 * @param {Server} server - the server it was sent to
+		 * @param {int} from - the from
+		 * @param {Packet} packet - the packet, positioned after its id
+		 */
+		void handle(Server server, int from, Packet packet);
+	}
+
+	/** The handlers, indexed by the packet id. */
+	private static final Handler[] HANDLERS = new Handler[Packet.Client.values().length];
+
+	static {
+		HANDLERS[Packet.Client.ADMISSION_RECEIVED.ordinal()] = ServerHandle::admissionReceived;
+		HANDLERS[Packet.Client.CLIENT_DISCONNECTED.ordinal()] = ServerHandle::clientDisconnected;
+		HANDLERS[Packet.Client.PLAYER_INPUT.ordinal()] = ServerHandle::playerInput;
+		HANDLERS[Packet.Client.PING.ordinal()] = ServerHandle::ping;
+		HANDLERS[Packet.Client.PONG.ordinal()] = ServerHandle::pong;
+		
+		// every packet a client can send must be handled
+		for (Packet.Client type : Packet.Client.values())
+			if (HANDLERS[type.ordinal()] == null)
+				throw new IllegalStateException("No server handler for " + type);
+	}
+
 	/**
 	 * Handle using packet id.
 	 *
+	 * @param {Server} server - the server it was sent to
 	 * @param {int} from - the from
-	 * @param {byte[]} buffer - the buffer
+	 * @param {Packet} packet - the packet, reused by the receiving thread
 	 */
-	public static void handle(int from, byte[] buffer) {
-		Packet packet = new Packet(buffer);
-
-		try {
-			switch (packet.readInt()) {
-				case 0:
-					admissionReceived(from, packet);
-					break;
-				case 1:
-					clientDisconnected(from, packet);
-					break;
-				case 2:
-					playerInput(packet);
-					break;
-				default:
-					break;
-			}
-		}
+	public static void handle(Server server, int from, Packet packet) {
+		packet.rewind();
 
-		catch (NullPointerException e) { }
+		// gets the packet id, then calls the corresponding handler
+		int type = packet.readInt();
+		if (type < 0 || type >= HANDLERS.length) return;
+		
+		// udp packets start with the id of the client that sent them
+		server.received.record(type, (from >= 0) ? from : packet.peekInt(Integer.BYTES), packet.getReceived());
+		HANDLERS[type].handle(server, from, packet);
 	}
 
 	/**
 	 * Admission received.
 	 *
+	 * @param {Server} server - the server it was sent to
 	 * @param {int} from - the from
 	 * @param {Packet} packet - the packet
 	 */
-	private static void admissionReceived(int from, Packet packet) {
+	private static void admissionReceived(Server server, int from, Packet packet) {
 		// reads packet contents
 		int id = packet.readInt();
 		String name = packet.readString();
 		int udpPort = packet.readInt();
+		int protocol = packet.readInt();
+		
+		// a client built with other packets may not have sent the rest
+		double delay = (protocol == Packet.PROTOCOL_VERSION) ? packet.readDouble() : 0;
 
+		server.commands.add(() -> admit(server, from, id, name, udpPort, protocol, delay));
+	}
+	
+	/**
+	 * Admits a client into the world, on the tick thread.
+	 *
+	 * @param {Server} server - the server it was sent to
+	 * @param {int} from - the from
+	 * @param {int} id - the id the client thinks it has
+	 * @param {String} name - the name
+	 * @param {int} udpPort - the port the client receives udp on
+	 * @param {int} protocol - the protocol version the client was built with
+	 * @param {double} delay - how far behind the client shows remote entities, in milliseconds
+	 */
+	private static void admit(Server server, int from, int id, String name, int udpPort, int protocol, double delay) {
 		System.out.println("[SERVER] Client with id of " + from + " connected successfully.");
 		if (id != from) {
 			System.out.printf("[SERVER] Client %s with id %d has assumed a wrong id of %d\n", name, from, id);
 			return;
 		}
 		
+		// drops clients that were built with a different set of packets
+		if (protocol != Packet.PROTOCOL_VERSION) {
+			System.out.printf("[SERVER] Client %s with id %d has protocol %08x, expected %08x\n", name, from, protocol, Packet.PROTOCOL_VERSION);
+			server.removeClient(from);
+			return;
+		}
+		
 		// updates the server client with the updates information
-		SClient sc = Server.instance().getClient(from);
+		SClient sc = server.getClient(from);
+		if (sc == null) return;
 		sc.setName(name); sc.port = udpPort;
-		sc.player = new SPlayer(id, name);
 		
-		// sends that the player has connected
-		ServerSend.playerConnected(id, sc.player.getKills(), sc.player.getHealth(), name, sc.player.transform);
-		ServerSend.validateUDP(from);
+		// the delay only decides how far its shots are rewound, which is limited anyway
+		sc.interpolationDelay = (delay > 0) ? Math.min(delay, LagCompensation.MAX_REWIND * 1000) : 0;
+		
+		// in lockstep the round restarts with the new player, and every client is sent its seed
+		if (server.manager.isLockstep()) {
+			server.manager.requestRestart();
+			ServerSend.validateUDP(server, from);
+			return;
+		}
+		
+		sc.player = server.manager.addPlayer(id, name);
+		
+		// sends that the player has connected, and the whole world to the new client
+		ServerSend.playerConnected(server, id, sc.player.getKills(), sc.player.getHealth(), name, sc.player.transform);
+		ServerSend.worldState(server, from);
+		ServerSend.validateUDP(server, from);
 	}
 
 	/**
 	 * Client disconnected.
 	 *
+	 * @param {Server} server - the server it was sent to
 	 * @param {int} from - the from
 	 * @param {Packet} packet - the packet
 	 */
-	private static void clientDisconnected(int from, Packet packet) {
+	private static void clientDisconnected(Server server, int from, Packet packet) {
+		server.commands.add(() -> disconnect(server, from));
+	}
+	
+	/**
+	 * Removes a client that disconnected, on the tick thread.
+	 *
+	 * @param {Server} server - the server it was sent to
+	 * @param {int} from - the from
+	 */
+	public static void disconnect(Server server, int from) {
+		SClient sc = server.getClient(from);
+		if (sc != null) System.out.println("[SERVER] Client with id of " + from + " had " + sc.latency + ", input " + sc.inputs);
+		
 		// removes the player
-		Server.instance().removeClient(from);
+		server.removeClient(from);
 		System.out.println("[SERVER] Client with id of " + from + " has disconnected successfully.");
 		
 		// sends the removal to all other clients
-		ServerSend.playerDisconnected(from);
+		ServerSend.playerDisconnected(server, from);
 	}
 
 	/**
 	 * Player input.
 	 *
+	 * @param {Server} server - the server it was sent to
+	 * @param {int} from - the from
+	 * @param {Packet} packet - the packet
+	 */
+	private static void playerInput(Server server, int from, Packet packet) {
+		int id = packet.readInt();
+		InputBuffer.Batch batch = InputBuffer.Batch.read(packet);
+		if (batch == null) return;
+		
+		// buffers the commands on the tick, they're applied one client tick per server tick
+		server.commands.add(() -> {
+			SClient sc = server.getClient(id);
+			if (sc != null) sc.inputs.receive(batch, server.manager.getTick());
+		});
+	}
+
+	/**
+	 * Ping from a client, replied to straight away.
+	 *
+	 * @param {Server} server - the server it was sent to
+	 * @param {int} from - the from
+	 * @param {Packet} packet - the packet
+	 */
+	private static void ping(Server server, int from, Packet packet) {
+		int id = packet.readInt();
+		ServerSend.pong(server, id, packet.readLong());
+	}
+
+	/**
+	 * Pong from a client, the round trip of the server's ping.
+	 *
+	 * @param {Server} server - the server it was sent to
+	 * @param {int} from - the from
 	 * @param {Packet} packet - the packet
 	 */
-	private static void playerInput(Packet packet) {
+	private static void pong(Server server, int from, Packet packet) {
 		int id = packet.readInt();
+		long time = packet.readLong();
 		
-		// processes the input packet for this player
-		SClient sc = Server.instance().getClient(id);
-		sc.player.controller.inputManager.process(packet);
+		// samples the round trip time to this client, as it arrives
+		SClient sc = server.getClient(id);
+		if (sc != null) sc.latency.sample(time);
 	}
 }
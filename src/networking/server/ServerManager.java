@@ -1,11 +1,17 @@
 package networking.server;
 
-import java.util.ConcurrentModificationException;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 import framework.common.GameObject;
-import framework.common.InputManager.Controls;
+import framework.common.InputManager;
+import framework.components.ComponentRegistry;
 import framework.components.Rigidbody;
 import framework.math.MathExt;
 import framework.math.Vector;
@@ -13,34 +19,137 @@ import framework.physics.Material;
 import framework.physics.Physics;
 import framework.physics.Physics.RigidbodyMode;
 import framework.physics.Vertex;
+import game.Game;
+import game.PlayerPrefs;
+import gameobjects.SPlayer;
 import gameobjects.SShot;
+import networking.Latency;
+import networking.Packet;
 import scenes.GameScene;
 
 /**
- * The Class ServerManager.
+ * The Class ServerManager, the state of one match: its world, players, shots and tick.
+ * Each server has its own, so one process can run many matches side by side.
  * 
  * @author priyangkar ghosh
  */
 public class ServerManager {
+	
+	/** The Constant ENTITY_COUNT, players take the first indices and asteroids the rest. */
+	public static final int ENTITY_COUNT = Server.MAX_PLAYERS + GameScene.NUM_OF_ASTEROIDS;
+
+	/** The Constant HASH_INTERVAL, how many seconds between the state hashes sent in lockstep. */
+	public static final double HASH_INTERVAL = 1;
+
+	/** The server this match is played on. */
+	private final Server server;
+
+	/** The components of this match, kept only to own them, the tick updates each one itself in the order it needs. */
+	public final ComponentRegistry components = new ComponentRegistry();
 
 	/** The world. */
-	public static Physics world = new Physics(Vector.zero());
+	public Physics world = new Physics(Vector.zero());
+
+	/** The generator every random choice in the world comes from, seeded so lockstep clients make the same ones. */
+	public Random random = new Random();
+
+	/** The shapes the players had over the last second, shots are tested against them. */
+	public LagCompensation lagCompensation = new LagCompensation(this);
+
+	/** The pool the per-client snapshots are encoded on. */
+	private static final ForkJoinPool ENCODERS = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	
+	/** The state of the world the snapshots are encoded from, captured each tick. */
+	private WorldCapture capture = new WorldCapture();
+	
+	/**
+	 * The copies lockstep is shown from, the tick fills one while the thread showing the world
+	 * reads another, and they're swapped through the latest published so neither waits or tears.
+	 */
+	private WorldCapture filling = new WorldCapture(), showing = new WorldCapture();
+	private final AtomicReference<WorldCapture> published = new AtomicReference<>(new WorldCapture());
+	
+	/** The number of copies published so far. */
+	private long publications = 0;
+	
+	/** The clients being sent a snapshot this tick, and their encoding tasks. */
+	private SClient[] recipients = new SClient[Server.MAX_PLAYERS];
+	private ForkJoinTask<?>[] encodings = new ForkJoinTask<?>[Server.MAX_PLAYERS];
+
+	/** The number of ticks since the server started. */
+	private int currentTick = 0;
 
-	/** The bullets in the world right now. */
-	private static HashSet<SShot> shots = new HashSet<>();
+	/** The bullets in the world right now, in the order they were fired. */
+	private HashSet<SShot> shots = new LinkedHashSet<>();
+	
+	/** The players in the world right now, by id. */
+	private SPlayer[] players = new SPlayer[Server.MAX_PLAYERS];
 	
 	/** The asteroids in the world right now. */
-	private static GameObject[] asteroids = new GameObject[GameScene.NUM_OF_ASTEROIDS];
+	private GameObject[] asteroids = new GameObject[GameScene.NUM_OF_ASTEROIDS];
+	
+	/** The bodies of the asteroids. */
+	private Rigidbody[] asteroidBodies = new Rigidbody[GameScene.NUM_OF_ASTEROIDS];
+	
+	/** The entity index of each asteroid. */
+	private IdentityHashMap<GameObject, Integer> asteroidIndices = new IdentityHashMap<>();
+	
+	/** The number of asteroids in the world, up to the number the clients have room for. */
+	private int asteroidCount = GameScene.NUM_OF_ASTEROIDS;
+	
+	/** If only inputs are sent, every client running the same simulation from the same seed. */
+	private boolean lockstep = false;
+	
+	/** If the world has been initialized since it was last reset. */
+	private boolean initialized = false;
+	
+	/** If the round should restart on the next tick, as a player joined or left in lockstep. */
+	private volatile boolean restartPending = false;
+	
+	/** The players whose commands changed this tick, sent to the lockstep clients. */
+	private boolean[] applied = new boolean[Server.MAX_PLAYERS];
+	
+	/** The id the next shot will be given, ids only need to be unique among the live shots. */
+	private int nextShotId = 0;
+	
+	/**
+	 * Instantiates a new server manager.
+	 *
+	 * @param {Server} server - the server this match is played on
+	 */
+	public ServerManager(Server server) {
+		this.server = server;
+	}
+	
+	/**
+	 * Initializes the server manager, in lockstep and with as many asteroids as the player prefs ask for.
+	 */
+	public void init() {
+		init(PlayerPrefs.get("lockstep", 0) != 0, System.nanoTime(), PlayerPrefs.get("asteroids", GameScene.NUM_OF_ASTEROIDS));
+	}
 	
 	/**
 	 * Initializes the server manager.
+	 *
+	 * @param {boolean} isLockstep - if only inputs are sent
+	 * @param {long} seed - the seed of the world's random choices
+	 * @param {int} count - the number of asteroids
 	 */
-	public static void init() {
+	public void init(boolean isLockstep, long seed, int count) {
+		lockstep = isLockstep;
+		asteroidCount = Math.max(0, Math.min(count, GameScene.NUM_OF_ASTEROIDS));
+		random = new Random(seed);
+		initialized = true;
+		
+		// the world is stepped on the room's scheduler thread with everything else, so however
+		// many rooms there are the process has no more simulation threads than the scheduler's
+		world.setDeterministic(true);
 		world.init();
 		
 		// adds the static ship to the world
-		world.addBody(
-				new Rigidbody(new GameObject(), RigidbodyMode.STATIC, 0, 
+		Rigidbody ship;
+		world.addBody(ship =
+				new Rigidbody(new GameObject(components), RigidbodyMode.STATIC, 0, 
 						
 				new Vertex[] {
 					new Vertex(968, 182),
@@ -55,17 +164,18 @@ public class ServerManager {
 		);
 		
 		// adds the asteroids to the world
-		for (int i = 0; i < GameScene.NUM_OF_ASTEROIDS; i++) {
-			asteroids[i] = new GameObject();
+		for (int i = 0; i < asteroidCount; i++) {
+			asteroids[i] = new GameObject(components);
+			asteroidIndices.put(asteroids[i], Server.MAX_PLAYERS + i);
 			
 			// chooses a random spawn location
 			Vector spawnPosition = new Vector(
-					1280 * MathExt.clamp(Math.random(), 0.3, 0.7), 
-					720 * MathExt.clamp(Math.random(), 0.3, 0.7)
+					1280 * MathExt.clamp(random.nextDouble(), 0.3, 0.7), 
+					720 * MathExt.clamp(random.nextDouble(), 0.3, 0.7)
 			);
 			
 			// adds the body to the world
-			world.addBody(
+			world.addBody(asteroidBodies[i] =
 					new Rigidbody(asteroids[i], RigidbodyMode.DYNAMIC, 1, 
 							
 					new Vertex[] {
@@ -80,6 +190,96 @@ public class ServerManager {
 			);
 		}
 	}
+	
+	/**
+	 * Restarts the round from a seed, keeping the tick. The players are added back after.
+	 *
+	 * @param {int} tick - the tick the round restarts on
+	 * @param {long} seed - the seed
+	 * @param {int} count - the number of asteroids
+	 */
+	public void restart(int tick, long seed, int count) {
+		reset();
+		init(true, seed, count);
+		currentTick = tick;
+		publish();
+	}
+	
+	/**
+	 * Asks for the round to restart on the next tick, for a player joining or leaving in lockstep.
+	 */
+	public void requestRestart() {
+		restartPending = true;
+	}
+	
+	/**
+	 * Restarts the round with every admitted client, keeping their kills, and tells them the seed.
+	 */
+	private void startRound() {
+		restartPending = false;
+		
+		int[] kills = new int[Server.MAX_PLAYERS];
+		for (int i = 0; i < Server.MAX_PLAYERS; i++)
+			if (players[i] != null) kills[i] = players[i].getKills();
+		
+		long seed = random.nextLong();
+		restart(currentTick, seed, asteroidCount);
+		
+		// adds the players in the order of their ids, the same order the clients add them in
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			SClient sc = this.server.getClient(i);
+			if (sc == null || sc.getName() == null) continue;
+			
+			sc.player = addPlayer(i, sc.getName());
+			sc.player.kills = kills[i];
+		}
+		
+		ServerSend.lockstepStart(this.server, currentTick, seed);
+	}
+	
+	/**
+	 * Adds a player to the world.
+	 *
+	 * @param {int} id - the id
+	 * @param {String} name - the name
+	 * @return {SPlayer} the player
+	 */
+	public SPlayer addPlayer(int id, String name) {
+		return players[id] = new SPlayer(this, id, name);
+	}
+	
+	/**
+	 * Removes a player from the world.
+	 *
+	 * @param {int} id - the id
+	 */
+	public void removePlayer(int id) {
+		SPlayer player = players[id];
+		if (player == null) return;
+		players[id] = null;
+		
+		// removes the body from the world, and destroys the player game object
+		world.removeBody(player.body);
+		player.destroy();
+	}
+	
+	/**
+	 * Checks if only inputs are being sent.
+	 *
+	 * @return {boolean} true, if in lockstep
+	 */
+	public boolean isLockstep() {
+		return lockstep;
+	}
+	
+	/**
+	 * Gets the number of asteroids in the world.
+	 *
+	 * @return {int} the asteroids, the first indices after the players
+	 */
+	public int getAsteroidCount() {
+		return asteroidCount;
+	}
 
 	/**
 	 * Shoot.
@@ -87,86 +287,336 @@ public class ServerManager {
 	 * @param {int} id - the id
 	 * @param {Vector} position - the position
 	 * @param {Vector} direction - the direction
+	 * @param {double} lead - the fraction of a tick the shot has already travelled for
 	 */
-	public static void shoot(int id, Vector position, Vector direction) {
-		SShot shot = new SShot(id, position, direction);
-		ServerSend.shotAdded(shot.getId(), shot.transform);
+	public void shoot(int id, Vector position, Vector direction, double lead) {
+		position = position.add(direction.scale(SShot.getTickSpeed() * lead));
+		
+		// in lockstep everyone sees the same world at the same tick, so nothing is rewound or sent
+		if (lockstep) {
+			shots.add(new SShot(this, id, position, direction, currentTick, 0));
+			return;
+		}
+		
+		SShot shot = new SShot(this, id, position, direction, currentTick,
+				LagCompensation.rewind(this.server.getClient(id)));
+		ServerSend.shotAdded(this.server, shot, getCommandTick(id));
 		shots.add(shot);
 	}
 	
+	/**
+	 * Gives a shot its id, counted from zero each round so a restarted round numbers its shots the same everywhere.
+	 *
+	 * @return {int} the id
+	 */
+	public int nextShotId() {
+		return nextShotId++;
+	}
+	
+	/**
+	 * Gets the server this match is played on.
+	 *
+	 * @return {Server} the server
+	 */
+	public Server getServer() {
+		return this.server;
+	}
+	
 	/**
 	 * Add kill to specified player.
 	 *
 	 * @param {int} id - the id of the player who got the kill
 	 */
-	public static void addKill(int id) {
-		SClient sc = Server.instance().getClient(id);
-		sc.player.kills++;
+	public void addKill(int id) {
+		SPlayer player = getPlayer(id);
+		if (player != null) player.kills++;
+	}
+
+	/**
+	 * Gets the entity index of a game object.
+	 *
+	 * @param {GameObject} object - the object
+	 * @return {int} the index, or -1 if the object isn't replicated
+	 */
+	public int indexOf(GameObject object) {
+		if (object instanceof SPlayer) return ((SPlayer) object).getId();
+		
+		Integer index = asteroidIndices.get(object);
+		return (index == null) ? -1 : index;
+	}
+
+	/**
+	 * Gets the client tick of the input a player is being moved with, which its client predicted from.
+	 *
+	 * @param {int} id - the id of the player
+	 * @return {int} the command's client tick, moved on by the ticks it has been held for since
+	 */
+	public int getCommandTick(int id) {
+		SClient sc = this.server.getClient(id);
+		if (sc == null || sc.player == null) return 0;
+		
+		InputManager input = sc.player.controller.inputManager;
+		return input.getCommandTick() + (currentTick - sc.inputTick);
+	}
+
+	/**
+	 * Gets the player of an entity.
+	 *
+	 * @param {int} index - the entity index
+	 * @return {SPlayer} the player, or null if the entity isn't a player in the world
+	 */
+	public SPlayer getPlayer(int index) {
+		if (index < 0 || index >= Server.MAX_PLAYERS) return null;
+		return players[index];
+	}
+
+	/**
+	 * Gets the body of an entity.
+	 *
+	 * @param {int} index - the entity index
+	 * @return {Rigidbody} the body, or null if the entity doesn't exist
+	 */
+	public Rigidbody getBody(int index) {
+		if (index >= Server.MAX_PLAYERS) return asteroidBodies[index - Server.MAX_PLAYERS];
+		
+		SPlayer player = getPlayer(index);
+		return (player == null) ? null : player.body;
 	}
 
 	/**
 	 * Tick.
 	 */
-	public static void tick() {
-		world.step();
+	public void tick() {
+		// applies what the clients sent since the last tick, nothing else changes the world
+		this.server.commands.drain();
+		if (lockstep && restartPending) startRound();
+		
+		currentTick++;
+		
+		// measures the round trip to each client every so often
+		if (currentTick % Latency.PING_INTERVAL == 0) ping();
 		
-		// loops through each player and updates them (and sends their information to other clients)
+		// applies the command due from each client, noting when a new one took effect
+		// so its client knows which inputs the server has seen
 		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
-			try {
-				SClient sc = Server.instance().getClient(i);
-				if (sc != null && sc.player != null) {
-					sc.player.update();
-					ServerSend.playerInformation(
-							sc.getId(), sc.player.getHealth(),
-							sc.player.controller.inputManager.getInput(Controls.SHOOT),
-							sc.player.transform
-					);
-				}
+			SClient sc = this.server.getClient(i);
+			applied[i] = sc != null && sc.player != null && sc.inputs.next(currentTick, sc.player.controller.inputManager);
+			if (applied[i]) sc.inputTick = currentTick;
+		}
+		
+		// in lockstep the commands are all that's sent, then every client simulates with them
+		if (lockstep && this.server.isRunning()) ServerSend.lockstepInput(this.server, currentTick, applied);
+		simulate();
+		
+		// updates what each client can see
+		for (int i = 0; i < Server.MAX_PLAYERS && !lockstep; i++) {
+			SClient sc = this.server.getClient(i);
+			if (sc != null && sc.player != null)
+				sc.interest.update(this.server, i, sc.player.transform.position);
+		}
+		
+		// loops through each player in the world and updates them, not through the clients,
+		// as a lockstep replica has the players without their clients and has to regenerate them too
+		for (int i = 0; i < Server.MAX_PLAYERS; i++)
+			if (players[i] != null) players[i].update();
+		
+		// keeps where the players are now, for shots fired from behind
+		lagCompensation.record(currentTick);
+		
+		// loops through each shot, clients simulate them so only removals are sent
+		for (Iterator<SShot> i = shots.iterator(); i.hasNext();) {
+		    SShot shot = i.next();
+		    
+		    // makes sure the shot is still alive
+		    if (shot.update()) continue;
+		    
+		    // otherwise it removes the shot and destroys its game object
+		    if (!lockstep) ServerSend.shotRemoved(this.server, shot.getId());
+		    shot.destroy();
+		    i.remove();
+		}
+		
+		// the lockstep clients check their world against this one every so often
+		if (!lockstep) snapshots();
+		else if (currentTick % Math.round(HASH_INTERVAL * Game.getTickRate()) == 0 && this.server.isRunning())
+			ServerSend.stateHash(this.server, currentTick, hash());
+		
+		// in lockstep the world is shown from a copy, as it's shown on another thread than the tick's
+		if (lockstep) publish();
+	}
+	
+	/**
+	 * Publishes a copy of the world as it is after the tick.
+	 */
+	private void publish() {
+		filling.capture(this, currentTick);
+		filling.captureShots(this);
+		filling.version = ++publications;
+		filling = published.getAndSet(filling);
+	}
+	
+	/**
+	 * Gets the latest copy of the world published, only ever called from the one thread showing it.
+	 *
+	 * @return {WorldCapture} the copy, which the tick doesn't touch until this is called again
+	 */
+	public WorldCapture getView() {
+		if (published.get().version > showing.version) showing = published.getAndSet(showing);
+		return showing;
+	}
+	
+	/**
+	 * Simulates the players and bodies on the tick thread, so the server keeps its own rate whatever
+	 * the game loop is doing. They go in a fixed order so every lockstep client runs the same
+	 * operations in the same order, players by id, then bodies in the order they were added.
+	 */
+	private void simulate() {
+		for (int i = 0; i < Server.MAX_PLAYERS; i++)
+			if (players[i] != null) players[i].controller.update();
+		
+		for (Rigidbody body : world.getBodies()) body.update();
+		world.step();
+	}
+	
+	/**
+	 * Hashes the state of the world, the exact bits of every body, player and shot.
+	 *
+	 * @return {long} the hash
+	 */
+	public long hash() {
+		long hash = 17;
+		
+		for (Rigidbody body : world.getBodies()) {
+			for (Vertex vertex : body.getVertices()) {
+				hash = 31 * hash + Double.doubleToLongBits(vertex.position.x);
+				hash = 31 * hash + Double.doubleToLongBits(vertex.position.y);
+				hash = 31 * hash + Double.doubleToLongBits(vertex.previousPosition.x);
+				hash = 31 * hash + Double.doubleToLongBits(vertex.previousPosition.y);
 			}
+		}
+		
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			if (players[i] == null) continue;
+			hash = 31 * hash + Double.doubleToLongBits(players[i].getHealth());
+			hash = 31 * hash + players[i].getKills();
+		}
+		
+		for (SShot shot : shots) {
+			hash = 31 * hash + shot.getId();
+			hash = 31 * hash + Double.doubleToLongBits(shot.transform.position.x);
+			hash = 31 * hash + Double.doubleToLongBits(shot.transform.position.y);
+		}
+		
+		return hash;
+	}
+	
+	/**
+	 * Pings each client, adapting its send rate to what was measured since the last ping.
+	 */
+	private void ping() {
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			SClient sc = this.server.getClient(i);
+			if (sc == null || sc.player == null) continue;
 			
-			catch (NullPointerException e) { }
+			// a ping that never came back counts as loss, even if none ever do
+			sc.latency.pinged();
+			sc.rate.adapt(i, sc.latency);
+			ServerSend.ping(this.server, i);
 		}
+	}
+	
+	/**
+	 * Captures the world, encodes each client's snapshot in parallel from it, then sends them.
+	 * Clients whose links have backed off are skipped on the ticks they aren't due.
+	 */
+	private void snapshots() {
+		capture.capture(this, currentTick);
 		
-		// loops through each shot and sents their information
-		try {
-			for (Iterator<SShot> i = shots.iterator(); i.hasNext();) {
-			    SShot shot = i.next();
-			    
-			    // makes sure the shot is still alive
-			    if (shot.update()) {
-			    	// if it is then it sends it's information
-					ServerSend.shotInformation(shot.getId(), shot.transform);
-					continue;
-			    }
-			    
-			    // otherwise it removes the shot and destroys its game object
-			    ServerSend.shotRemoved(shot.getId());
-			    shot.destroy();
-			    i.remove();
-			}
+		// finds the clients to send to
+		int count = 0;
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			SClient sc = this.server.getClient(i);
+			if (sc != null && sc.player != null && capture.exists[i] && sc.rate.isDue(currentTick))
+				recipients[count++] = sc;
 		}
-
-		catch (ConcurrentModificationException e) { }
 		
-		// sends the asteroid information
-		ServerSend.asteroidInformation(asteroids);
+		// each client only touches its own state, so they're all encoded at once
+		for (int i = 0; i < count; i++) {
+			SClient sc = recipients[i];
+			encodings[i] = ENCODERS.submit(() -> this.encode(sc));
+		}
+		
+		// waits for each encoding, then hands it to the send path
+		for (int i = 0; i < count; i++) {
+			Packet packet = (Packet) encodings[i].join();
+			if (packet != null) ServerSend.snapshot(this.server, recipients[i].getId(), packet);
+			
+			recipients[i] = null;
+			encodings[i] = null;
+		}
+	}
+	
+	/**
+	 * Encodes the snapshot for one client.
+	 *
+	 * @param {SClient} sc - the client
+	 * @return {Packet} the snapshot
+	 */
+	private Packet encode(SClient sc) {
+		return ServerSend.encodeSnapshot(sc, capture);
+	}
+
+	/**
+	 * Gets the shots in the world right now.
+	 *
+	 * @return {HashSet<SShot>} the shots
+	 */
+	public HashSet<SShot> getShots() {
+		return shots;
+	}
+
+	/**
+	 * Gets the current tick.
+	 *
+	 * @return {int} the number of ticks since the server started
+	 */
+	public int getTick() {
+		return currentTick;
 	}
 
 	/**
 	 * Resets the server manager.
 	 */
-	public static void reset() {
+	public void reset() {
+		if (!initialized) return;
+		initialized = false;
+		restartPending = false;
+		lockstep = false;
+		
+		// destroys the players still in the world
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			if (players[i] == null) continue;
+			players[i].destroy();
+			players[i] = null;
+		}
+		
 		// destroys all the asteroids
-		for (int i = 0; i < GameScene.NUM_OF_ASTEROIDS; i++) {
+		for (int i = 0; i < asteroidCount; i++) {
 			asteroids[i].destroy();
 			asteroids[i] = null;
+			asteroidBodies[i] = null;
 		}
+		asteroidIndices.clear();
 		
 		// destroys all the remaining shots
 		for (SShot shot : shots) shot.destroy();
 		
 		// clears the collections
 		shots.clear();
+		nextShotId = 0;
+		lagCompensation.clear();
+		currentTick = 0;
 		world.clear();
+		components.clear();
 	}
 }
@@ -1,12 +1,20 @@
 package networking.server;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.util.HashSet;
 
-import framework.common.GameObject;
+import framework.common.InputManager;
+import framework.common.InputManager.Controls;
 import framework.common.Transform;
+import framework.components.Rigidbody;
+import game.Game;
+import gameobjects.SPlayer;
+import gameobjects.SShot;
+import networking.Frame;
 import networking.Packet;
-import scenes.GameScene;
 
 /**
  * The Class ServerSend, sends packets from server to the clients.
@@ -18,118 +26,130 @@ public class ServerSend {
 	/**
 	 * Send TCP packet to specific client.
 	 *
+	 * @param {Server} server - the server
 	 * @param {int} to - the to
 	 * @param {Packet} packet - the packet
 	 */
-	private static void sendTCP(int to, Packet packet) {
+	private static void sendTCP(Server server, int to, Packet packet) {
+		assert packet.matchesSchema() : packet.getType() + " doesn't match its schema";
+		
+		// skips ids without a client, or one that has been closed
+		SClient sc = server.getClient(to);
+		BufferedOutputStream out = (sc == null) ? null : sc.out;
+		if (out == null) return;
+
 		try {
-			SClient sc = Server.instance().getClient(to);
-			// writes the packet then flushes the stream
-			sc.out.write(packet.getBuffer());
-			sc.out.flush();
+			// writes the packet as one frame then flushes the stream
+			server.sent.record(packet.peekInt(0), to, Frame.write(out, packet));
 		}
 
 		catch (IOException e) {
 			System.out.println("[SERVER] TCP to client " + to + "sending failed.");
 		}
-
-		catch (NullPointerException e) {
-
-		}
 	}
 
 	/**
 	 * Send all TCP.
 	 *
+	 * @param {Server} server - the server
 	 * @param {Packet} packet - the packet
 	 */
-	private static void sendTCP(Packet packet) {
+	private static void sendTCP(Server server, Packet packet) {
 		// sends tcp packet to all clients
 		for (int id = 0; id < Server.MAX_PLAYERS; id++)
-			sendTCP(id, packet);
+			sendTCP(server, id, packet);
 	}
 
 	/**
 	 * Send UDP packet.
 	 *
+	 * @param {Server} server - the server
 	 * @param {int} to - the to
 	 * @param {Packet} packet - the packet
 	 */
-	private static void sendUDP(int to, Packet packet) {
+	private static void sendUDP(Server server, int to, Packet packet) {
+		assert packet.matchesSchema() : packet.getType() + " doesn't match its schema";
+		
+		// skips ids without a client, and servers that have stopped
+		SClient sc = server.getClient(to);
+		Server.UDP udp = server.udp;
+		DatagramSocket socket = (udp == null) ? null : udp.socket;
+		if (sc == null || socket == null) return;
+
 		try {
-			// gets the client
-			SClient sc = Server.instance().getClient(to);
-			
-			// creates a udp packet
+			// creates a udp packet, only as long as what was written
 			DatagramPacket udpPacket = new DatagramPacket(
-					packet.getBuffer(), Packet.BUFFER_ALLOCATE,
+					packet.getBuffer(), packet.size(),
 					sc.address, sc.port
 			);
 			
 			// sends the udp packet to that client
-			Server.instance().udp.socket.send(udpPacket);
+			socket.send(udpPacket);
+			server.sent.record(packet.peekInt(0), to, packet.size());
 		}
 
 		catch (IOException e) {
 			System.out.println("[SERVER] UDP sending to client " + to + " failed.");
 		}
-
-		catch (NullPointerException e) {
-
-		}
 	}
 
 	/**
 	 * Send all UDP.
 	 *
+	 * @param {Server} server - the server
 	 * @param {Packet} packet - the packet
 	 */
-	private static void sendUDP(Packet packet) {
+	private static void sendUDP(Server server, Packet packet) {
 		// sends a udp packet to all clients
 		for (int id = 0; id < Server.MAX_PLAYERS; id++)
-			sendUDP(id, packet);
+			sendUDP(server, id, packet);
 	}
 
 	/**
 	 * Admit.
 	 *
+	 * @param {Server} server - the server
 	 * @param {int} id - the id
 	 * @param {String} msg - the msg
 	 */
-	public static void admit(int id, String msg) {
+	public static void admit(Server server, int id, String msg) {
 		Packet packet = new Packet(Packet.Server.ADMIT);
 		
 		// writes the packet content
 		packet.write(id);
 		packet.write(msg);
+		packet.write(Packet.PROTOCOL_VERSION);
+		packet.write(Game.getFixedTimestep());
 
-		sendTCP(id, packet);
+		sendTCP(server, id, packet);
 	}
 
 	/**
 	 * Validate UDP.
 	 *
+	 * @param {Server} server - the server
 	 * @param {int} id - the id
 	 */
-	public static void validateUDP(int id) {
+	public static void validateUDP(Server server, int id) {
 		Packet packet = new Packet(Packet.Server.VALIDATE);
 
 		// writes the packet content
 		packet.write(id);
 
-		sendUDP(id, packet);
+		sendUDP(server, id, packet);
 	}
 
 	/**
-	 * Player connected.
+	 * Player connected, sent to every client except the new one, which gets the world state instead.
 	 *
+	 * @param {Server} server - the server
 	 * @param {int} id - the id
 	 * @param {int} kills - the kills
 	 * @param {double} health - the health
 	 * @param {String} name - the name
 	 * @param {Transform} transform - the transform
 	 */
-	public static void playerConnected(int id, int kills, double health, String name, Transform transform) {
+	public static void playerConnected(Server server, int id, int kills, double health, String name, Transform transform) {
 		Packet packet = new Packet(Packet.Server.PLAYER_CONNECTED);
 		
 		// writes the packet content
@@ -139,141 +159,354 @@ public class ServerSend {
 		packet.write(health);
 		packet.write(transform);
 
-		sendTCP(packet);
+		for (int i = 0; i < Server.MAX_PLAYERS; i++)
+			if (i != id) sendTCP(server, i, packet);
+	}
 
-		// send the other players to the new client
-		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
-			if (i == id) continue;
+	/**
+	 * Pings a client, it echoes the time back so the server can measure its round trip.
+	 *
+	 * @param {Server} server - the server
+	 * @param {int} to - the client
+	 */
+	public static void ping(Server server, int to) {
+		Packet packet = new Packet(Packet.Server.PING);
+		
+		// writes the packet content
+		packet.write(System.nanoTime());
+		
+		sendUDP(server, to, packet);
+	}
+	
+	/**
+	 * Replies to a client's ping.
+	 *
+	 * @param {Server} server - the server
+	 * @param {int} to - the client
+	 * @param {long} time - the time the client sent the ping
+	 */
+	public static void pong(Server server, int to, long time) {
+		Packet packet = new Packet(Packet.Server.PONG);
+		
+		// writes the packet content
+		packet.write(time);
+		packet.write(server.manager.getTick());
+		
+		sendUDP(server, to, packet);
+	}
 
-			SClient client = Server.instance().getClient(i);
-			if (client == null) continue;
+	/**
+	 * World state, everything a joining client needs in one compressed frame,
+	 * tagged with the tick it was taken on.
+	 *
+	 * @param {Server} server - the server
+	 * @param {int} to - the joining client
+	 */
+	public static void worldState(Server server, int to) {
+		Packet packet = new Packet(Packet.Server.WORLD_STATE, Frame.MAX_SIZE);
+		packet.write(server.manager.getTick());
+		
+		// finds the players, including the one joining
+		SClient[] clients = new SClient[Server.MAX_PLAYERS];
+		int players = 0;
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			SClient client = server.getClient(i);
+			if (client != null && client.player != null) clients[players++] = client;
+		}
+		
+		// writes the players
+		packet.write(players);
+		for (int i = 0; i < players; i++) {
+			SPlayer player = clients[i].player;
 			
-			packet = new Packet(Packet.Server.PLAYER_CONNECTED);
-
-			// writes the packet content
-			packet.write(client.getId());
-			packet.write(client.getName());
-			packet.write(client.player.getKills());
-			packet.write(client.player.getHealth());
-			packet.write(client.player.transform);
-
-			sendTCP(id, packet);
+			packet.write(clients[i].getId());
+			packet.write(clients[i].getName());
+			packet.write(player.getKills());
+			packet.write(player.getHealth());
+			packet.write(player.transform);
 		}
+		
+		// writes every asteroid with its velocities
+		packet.write(server.manager.getAsteroidCount());
+		for (int i = 0; i < server.manager.getAsteroidCount(); i++) {
+			Rigidbody body = server.manager.getBody(Server.MAX_PLAYERS + i);
+			
+			packet.write(i);
+			packet.write(body.getHost().transform);
+			packet.write(body.getVelocity());
+			packet.write(body.getAngularVelocity());
+		}
+		
+		// sent on the tick, so the shots can't change while they're written
+		HashSet<SShot> shots = server.manager.getShots();
+		
+		// writes the live shots, the client catches them up from their spawn tick
+		packet.write(shots.size());
+		for (SShot shot : shots) {
+			packet.write(shot.getId());
+			packet.write(shot.getSpawnTick());
+			packet.write(shot.getOrigin());
+			packet.write(shot.getDirection());
+			packet.write(SShot.getTickSpeed());
+		}
+		
+		sendTCP(server, to, packet);
 	}
 
 	/**
 	 * Player disconnected.
 	 *
+	 * @param {Server} server - the server
 	 * @param {int} id - the id
 	 */
-	public static void playerDisconnected(int id) {
+	public static void playerDisconnected(Server server, int id) {
 		Packet packet = new Packet(Packet.Server.PLAYER_DISCONNECTED);
 		
 		// writes the packet content
 		packet.write(id);
 
-		sendTCP(packet);
+		sendTCP(server, packet);
 	}
 
 	/**
-	 * Player information.
+	 * Encodes the snapshot of the players and asteroids chosen for a client this tick.
+	 * Only touches the client's own state and the capture, so clients can be encoded in parallel.
 	 *
-	 * @param {int} id - the id
-	 * @param {double} health - the health
-	 * @param {boolean} isShooting - the is shooting
-	 * @param {Transform} transform - the transform
+	 * @param {SClient} sc - the client
+	 * @param {WorldCapture} world - the state of the world this tick
+	 * @return {Packet} the snapshot, ready to send
 	 */
-	public static void playerInformation(int id, double health, boolean isShooting, Transform transform) {
-		Packet packet = new Packet(Packet.Server.PLAYER_INFORMATION);
-
-		// writes the packet content
-		packet.write(id);
-		packet.write(health);
-		packet.write(isShooting);
-		packet.write(transform);
-
-		sendUDP(packet);
+	public static Packet encodeSnapshot(SClient sc, WorldCapture world) {
+		// chooses the highest priority entities that fit in the budget
+		int chosen = sc.priority.select(sc.getId(), world, sc.interest, sc.reckoning);
+		
+		// counts how many of them are players
+		int players = 0;
+		for (int i = 0; i < chosen; i++)
+			if (sc.priority.get(i) < Server.MAX_PLAYERS) players++;
+		
+		Packet packet = new Packet(Packet.Server.SNAPSHOT);
+		packet.write(world.tick);
+		
+		// writes the client's own player every time, so it can reconcile its prediction
+		int id = sc.getId();
+		packet.write(world.acknowledged[id]);
+		packet.write(world.health[id]);
+		packet.write(world.shooting[id]);
+		world.write(packet, id);
+		
+		// writes the players
+		packet.write(players);
+		for (int i = 0; i < chosen; i++) {
+			int index = sc.priority.get(i);
+			if (index >= Server.MAX_PLAYERS) continue;
+			
+			packet.write(index);
+			packet.write(world.health[index]);
+			packet.write(world.shooting[index]);
+			world.write(packet, index);
+			
+			// the client extrapolates from this state until it's sent again
+			sc.reckoning.sent(index, world);
+		}
+		
+		// writes the asteroids
+		packet.write(chosen - players);
+		for (int i = 0; i < chosen; i++) {
+			int index = sc.priority.get(i);
+			if (index < Server.MAX_PLAYERS) continue;
+			
+			packet.write(index - Server.MAX_PLAYERS);
+			world.write(packet, index);
+			
+			// the client extrapolates from this state until it's sent again
+			sc.reckoning.sent(index, world);
+		}
+		
+		return packet;
+	}
+	
+	/**
+	 * Sends an encoded snapshot.
+	 *
+	 * @param {Server} server - the server
+	 * @param {int} to - the client
+	 * @param {Packet} packet - the snapshot
+	 */
+	public static void snapshot(Server server, int to, Packet packet) {
+		sendUDP(server, to, packet);
 	}
 
 	/**
 	 * When a player kills another player.
 	 *
+	 * @param {Server} server - the server
 	 * @param {int} id - the id
 	 */
-	public static void killedPlayer(int id) {
+	public static void killedPlayer(Server server, int id) {
 		Packet packet = new Packet(Packet.Server.KILLED_PLAYER);
 		
 		// writes the packet content
 		packet.write(id);
 
-		sendTCP(packet);
+		sendTCP(server, packet);
 	}
 
 	/**
-	 * Shot added.
+	 * Shot added, the only time a shot's motion is sent as clients simulate it.
 	 *
-	 * @param {String} id - the id
-	 * @param {Transform} transform - the transform
+	 * @param {Server} server - the server
+	 * @param {SShot} shot - the shot
+	 * @param {int} clientTick - the shooter's client tick the shot was fired on
 	 */
-	public static void shotAdded(String id, Transform transform) {
+	public static void shotAdded(Server server, SShot shot, int clientTick) {
 		Packet packet = new Packet(Packet.Server.SHOT_ADDED);
 		
-		// writes the packet content
-		packet.write(id);
-		packet.write(transform);
-
-		sendTCP(packet);
+		// writes the packet content, the shooter matches it to the shot it predicted by the client tick
+		packet.write(shot.getId());
+		packet.write(shot.getFrom());
+		packet.write(clientTick);
+		packet.write(shot.getSpawnTick());
+		packet.write(shot.getOrigin());
+		packet.write(shot.getDirection());
+		packet.write(SShot.getTickSpeed());
+
+		sendTCP(server, packet);
 	}
 
 	/**
 	 * Remove a shot.
 	 *
-	 * @param {String} id - the id
+	 * @param {Server} server - the server
+	 * @param {int} id - the id
 	 */
-	public static void shotRemoved(String id) {
+	public static void shotRemoved(Server server, int id) {
 		Packet packet = new Packet(Packet.Server.SHOT_REMOVED);
 		
 		// writes the packet content
 		packet.write(id);
 
-		sendTCP(packet);
+		sendTCP(server, packet);
 	}
 
 	/**
-	 * Shot information.
+	 * The round restarting in lockstep, every client rebuilds the world from the seed.
 	 *
-	 * @param {String} id - the id
-	 * @param {Transform} transform - the transform
+	 * @param {Server} server - the server
+	 * @param {int} tick - the tick the round restarts on
+	 * @param {long} seed - the seed
 	 */
-	public static void shotInformation(String id, Transform transform) {
-		Packet packet = new Packet(Packet.Server.SHOT_INFORMATION);
+	public static void lockstepStart(Server server, int tick, long seed) {
+		Packet packet = new Packet(Packet.Server.LOCKSTEP_START);
+		packet.write(tick);
+		packet.write(seed);
+		packet.write(server.manager.getAsteroidCount());
 		
-		// writes the packet content
-		packet.write(id);
-		packet.write(transform);
-
-		sendUDP(packet);
+		// counts the players, then writes them in the order they were added
+		int count = 0;
+		for (int i = 0; i < Server.MAX_PLAYERS; i++)
+			if (server.manager.getPlayer(i) != null) count++;
+		
+		packet.write(count);
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			SPlayer player = server.manager.getPlayer(i);
+			if (player == null) continue;
+			
+			packet.write(i);
+			packet.write(player.getName());
+			packet.write(player.getKills());
+		}
+		
+		sendTCP(server, packet);
+	}
+	
+	/**
+	 * The commands that took effect on a lockstep tick, the only thing sent each tick.
+	 *
+	 * @param {Server} server - the server
+	 * @param {int} tick - the tick
+	 * @param {boolean[]} applied - if each player's command changed this tick
+	 */
+	public static void lockstepInput(Server server, int tick, boolean[] applied) {
+		Packet packet = new Packet(Packet.Server.LOCKSTEP_INPUT);
+		packet.write(tick);
+		
+		int count = 0;
+		for (int i = 0; i < Server.MAX_PLAYERS; i++)
+			if (applied[i] && server.manager.getPlayer(i) != null) count++;
+		
+		// writes each command as it was applied, before its press offset is taken
+		packet.write(count);
+		for (int i = 0; i < Server.MAX_PLAYERS; i++) {
+			SPlayer player = server.manager.getPlayer(i);
+			if (!applied[i] || player == null) continue;
+			
+			InputManager input = player.controller.inputManager;
+			packet.write(i);
+			packet.write(input.getSequence());
+			packet.write(input.getCommandTick());
+			for (Controls control : Controls.values()) packet.write(input.getInput(control));
+			packet.write(input.getMousePosition());
+			packet.write(input.getPressOffset());
+		}
+		
+		sendTCP(server, packet);
+	}
+	
+	/**
+	 * The hash of the world after a lockstep tick.
+	 *
+	 * @param {Server} server - the server
+	 * @param {int} tick - the tick
+	 * @param {long} hash - the hash
+	 */
+	public static void stateHash(Server server, int tick, long hash) {
+		Packet packet = new Packet(Packet.Server.STATE_HASH);
+		packet.write(tick);
+		packet.write(hash);
+		
+		sendTCP(server, packet);
 	}
 
 	/**
 	 * If the server was stopped, tell the client.
+	 *
+	 * @param {Server} server - the server
 	 */
-	public static void serverStopped() {
+	public static void serverStopped(Server server) {
 		Packet packet = new Packet(Packet.Server.SERVER_STOPPED);
-		sendTCP(packet);
+		sendTCP(server, packet);
 	}
 	
 	/**
-	 * Asteroid information.
+	 * An entity entered a client's view.
 	 *
-	 * @param {GameObject[]} asteroids - the asteroids
+	 * @param {Server} server - the server
+	 * @param {int} to - the client
+	 * @param {int} index - the entity index
 	 */
-	public static void asteroidInformation(GameObject[] asteroids) {
-		Packet packet = new Packet(Packet.Server.ASTEROID_INFORMATION);
-
-		for (int i = 0; i < GameScene.NUM_OF_ASTEROIDS; i++)
-			if (asteroids[i] != null) packet.write(asteroids[i].transform);
-
-		sendUDP(packet);
+	public static void entityEntered(Server server, int to, int index) {
+		Packet packet = new Packet(Packet.Server.ENTITY_ENTERED);
+		
+		// writes the packet content
+		packet.write(index);
+		
+		sendTCP(server, to, packet);
+	}
+	
+	/**
+	 * An entity left a client's view.
+	 *
+	 * @param {Server} server - the server
+	 * @param {int} to - the client
+	 * @param {int} index - the entity index
+	 */
+	public static void entityLeft(Server server, int to, int index) {
+		Packet packet = new Packet(Packet.Server.ENTITY_LEFT);
+		
+		// writes the packet content
+		packet.write(index);
+		
+		sendTCP(server, to, packet);
 	}
 }
\ No newline at end of file
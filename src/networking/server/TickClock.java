@@ -0,0 +1,132 @@
+package networking.server;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The Class TickClock, schedules the server's ticks at a fixed rate on its own thread.
+ * Each tick is due a whole period after the last one was due, not after it ran, so the
+ * rate doesn't drift however long the ticks take. The thread parks until just before a
+ * tick is due, then spins for the rest, as parking on its own can wake late. How late
+ * it wakes is measured, and the spin is made long enough to cover it.
+ *
+ * @author priyangkar ghosh
+ */
+public class TickClock {
+
+	/** The Constant MIN_SPIN_NANOS and MAX_SPIN_NANOS, the bounds of how long before a tick the thread spins. */
+	public static final long MIN_SPIN_NANOS = 50000;
+	public static final long MAX_SPIN_NANOS = 2000000;
+
+	/** The Constant MAX_BEHIND, how many ticks the clock can fall behind before it skips them instead of catching up. */
+	public static final int MAX_BEHIND = 5;
+
+	/** The length of a tick. */
+	private long period;
+
+	/** When the next tick is due. */
+	private long next;
+
+	/** How long before a tick the thread stops parking and spins. */
+	private long spin = MIN_SPIN_NANOS * 4;
+
+	/** The ticks that ran late and the ticks that were skipped. */
+	private long late = 0, skipped = 0;
+
+	/**
+	 * Instantiates a new tick clock.
+	 *
+	 * @param {double} rate - the ticks per second
+	 */
+	public TickClock(double rate) {
+		this.period = Math.round(1e9 / rate);
+	}
+
+	/**
+	 * Starts the schedule, the first tick is due a period from now.
+	 */
+	public void start() {
+		this.next = System.nanoTime() + this.period;
+	}
+
+	/**
+	 * Starts the schedule at another rate, the first tick is due a period from now.
+	 *
+	 * @param {double} rate - the ticks per second
+	 */
+	public void start(double rate) {
+		this.period = Math.round(1e9 / rate);
+		this.start();
+	}
+
+	/**
+	 * Waits until the next tick is due. A tick that is already due returns straight away,
+	 * so the ticks a slow one held up run back to back until the clock has caught up.
+	 */
+	public void await() {
+		long now = System.nanoTime();
+
+		// parks until the spin, measuring how late parking wakes so the spin covers it
+		while (this.next - now > this.spin) {
+			long target = this.next - this.spin;
+			LockSupport.parkNanos(target - now);
+			now = System.nanoTime();
+
+			long overshoot = Math.max(0, now - target);
+			this.spin = Math.max(MIN_SPIN_NANOS, Math.min(MAX_SPIN_NANOS, this.spin + (2 * overshoot - this.spin) / 8));
+		}
+
+		// spins for the final microseconds
+		while (now < this.next) {
+			Thread.onSpinWait();
+			now = System.nanoTime();
+		}
+
+		// too far behind, the ticks are dropped rather than run all at once
+		long behind = (now - this.next) / this.period;
+		if (behind > MAX_BEHIND) {
+			this.skipped += behind;
+			this.next += behind * this.period;
+		}
+
+		else if (behind > 0) this.late++;
+		this.next += this.period;
+	}
+
+	/**
+	 * Gets the length of a tick.
+	 *
+	 * @return {long} the period in nanoseconds
+	 */
+	public long getPeriod() {
+		return this.period;
+	}
+
+	/**
+	 * Gets the ticks that ran a whole period or more late.
+	 *
+	 * @return {long} the late ticks
+	 */
+	public long getLate() {
+		return this.late;
+	}
+
+	/**
+	 * Gets the ticks that were skipped when the clock fell too far behind.
+	 *
+	 * @return {long} the skipped ticks
+	 */
+	public long getSkipped() {
+		return this.skipped;
+	}
+
+	/**
+	 * To string.
+	 *
+	 * @return {String} the rate, spin and the ticks that were late or skipped
+	 */
+	@Override
+	public String toString() {
+		return String.format("%.1f Hz, spinning %d us, %d late, %d skipped",
+				1e9 / this.period, this.spin / 1000, this.late, this.skipped);
+	}
+}
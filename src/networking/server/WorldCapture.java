@@ -0,0 +1,157 @@
+package networking.server;
+
+import java.util.Arrays;
+
+import framework.common.Transform;
+import framework.components.Rigidbody;
+import framework.math.Vector;
+import gameobjects.SPlayer;
+import gameobjects.SShot;
+import networking.Packet;
+
+/**
+ * The Class WorldCapture, a read-only copy of every entity taken once a tick.
+ * The per-client snapshots are encoded from this in parallel, so none of them
+ * touch the live bodies while the world may be changing. In lockstep the shots
+ * are copied too, and the game loop shows the world from a copy.
+ *
+ * @author priyangkar ghosh
+ */
+public class WorldCapture {
+
+	/** The tick this was captured on. */
+	public int tick;
+
+	/** The number of copies the match had published when this one was, 0 if it never was. */
+	public long version = 0;
+
+	/** If each entity exists. */
+	public final boolean[] exists = new boolean[ServerManager.ENTITY_COUNT];
+
+	/** The transform of each entity. */
+	public final double[] x = new double[ServerManager.ENTITY_COUNT];
+	public final double[] y = new double[ServerManager.ENTITY_COUNT];
+	public final double[] rotation = new double[ServerManager.ENTITY_COUNT];
+	public final double[] scaleX = new double[ServerManager.ENTITY_COUNT];
+	public final double[] scaleY = new double[ServerManager.ENTITY_COUNT];
+
+	/** The velocity, angular velocity and speed of each entity. */
+	public final double[] vx = new double[ServerManager.ENTITY_COUNT];
+	public final double[] vy = new double[ServerManager.ENTITY_COUNT];
+	public final double[] angularVelocity = new double[ServerManager.ENTITY_COUNT];
+	public final double[] speed = new double[ServerManager.ENTITY_COUNT];
+
+	/** The health and shooting of each player. */
+	public final double[] health = new double[ServerManager.ENTITY_COUNT];
+	public final boolean[] shooting = new boolean[ServerManager.ENTITY_COUNT];
+
+	/** The last client tick of input each player has had applied, so its client can replay the rest. */
+	public final int[] acknowledged = new int[ServerManager.ENTITY_COUNT];
+
+	/** The kills of each player. */
+	public final int[] kills = new int[ServerManager.ENTITY_COUNT];
+
+	/** The number of shots, in the order they were fired. */
+	public int shotCount = 0;
+
+	/** The id and spawn tick of each shot. */
+	public int[] shotIds = new int[16];
+	public int[] shotSpawnTicks = new int[16];
+
+	/** The origin, direction and position of each shot. */
+	public double[] shotOriginX = new double[16], shotOriginY = new double[16];
+	public double[] shotDirectionX = new double[16], shotDirectionY = new double[16];
+	public double[] shotX = new double[16], shotY = new double[16];
+
+	/**
+	 * Captures every entity, on the tick thread.
+	 *
+	 * @param {ServerManager} manager - the match to capture
+	 * @param {int} tick - the current tick
+	 */
+	public void capture(ServerManager manager, int tick) {
+		this.tick = tick;
+
+		for (int i = 0; i < ServerManager.ENTITY_COUNT; i++) {
+			Rigidbody body = manager.getBody(i);
+			this.exists[i] = body != null;
+			if (body == null) continue;
+
+			Transform transform = body.getHost().transform;
+			this.x[i] = transform.position.x;
+			this.y[i] = transform.position.y;
+			this.rotation[i] = transform.rotation;
+			this.scaleX[i] = transform.scale.x;
+			this.scaleY[i] = transform.scale.y;
+
+			Vector velocity = body.getVelocity();
+			this.vx[i] = velocity.x;
+			this.vy[i] = velocity.y;
+			this.angularVelocity[i] = body.getAngularVelocity();
+			this.speed[i] = body.getSpeed();
+
+			// only players have health and shoot
+			SPlayer player = manager.getPlayer(i);
+			this.health[i] = (player == null) ? 0 : player.getHealth();
+			this.shooting[i] = player != null && player.isShooting();
+			this.kills[i] = (player == null) ? 0 : player.getKills();
+			if (player != null) this.acknowledged[i] = manager.getCommandTick(i);
+		}
+	}
+
+	/**
+	 * Captures every shot, on the tick thread.
+	 *
+	 * @param {ServerManager} manager - the match to capture
+	 */
+	public void captureShots(ServerManager manager) {
+		this.shotCount = 0;
+
+		for (SShot shot : manager.getShots()) {
+			int s = this.shotCount++;
+			if (s == this.shotIds.length) this.grow(2 * s);
+
+			this.shotIds[s] = shot.getId();
+			this.shotSpawnTicks[s] = shot.getSpawnTick();
+			this.shotOriginX[s] = shot.getOrigin().x;
+			this.shotOriginY[s] = shot.getOrigin().y;
+			this.shotDirectionX[s] = shot.getDirection().x;
+			this.shotDirectionY[s] = shot.getDirection().y;
+			this.shotX[s] = shot.transform.position.x;
+			this.shotY[s] = shot.transform.position.y;
+		}
+	}
+
+	/**
+	 * Makes room for more shots.
+	 *
+	 * @param {int} size - the number of shots to make room for
+	 */
+	private void grow(int size) {
+		this.shotIds = Arrays.copyOf(this.shotIds, size);
+		this.shotSpawnTicks = Arrays.copyOf(this.shotSpawnTicks, size);
+		this.shotOriginX = Arrays.copyOf(this.shotOriginX, size);
+		this.shotOriginY = Arrays.copyOf(this.shotOriginY, size);
+		this.shotDirectionX = Arrays.copyOf(this.shotDirectionX, size);
+		this.shotDirectionY = Arrays.copyOf(this.shotDirectionY, size);
+		this.shotX = Arrays.copyOf(this.shotX, size);
+		this.shotY = Arrays.copyOf(this.shotY, size);
+	}
+
+	/**
+	 * Writes the transform and velocities of an entity, in the same layout as a transform, vector and double.
+	 *
+	 * @param {Packet} packet - the packet
+	 * @param {int} index - the entity index
+	 */
+	public void write(Packet packet, int index) {
+		packet.write(this.x[index]);
+		packet.write(this.y[index]);
+		packet.write(this.rotation[index]);
+		packet.write(this.scaleX[index]);
+		packet.write(this.scaleY[index]);
+		packet.write(this.vx[index]);
+		packet.write(this.vy[index]);
+		packet.write(this.angularVelocity[index]);
+	}
+}
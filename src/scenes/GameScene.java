@@ -21,6 +21,7 @@ import framework.components.StarRenderer;
 import framework.math.Vector;
 import game.Game;
 import networking.client.CClient;
+import networking.client.ClientManager;
 import networking.server.Server;
 
 /**
@@ -92,11 +93,14 @@ public class GameScene extends Scene {
 	@Override
 	public void update() {
 		double currentTimeScaled = System.currentTimeMillis() / 100;
-		Vector cosSin = new Vector(Math.cos(currentTimeScaled), Math.sin(currentTimeScaled)).scale(Game.FIXED_TIMESTEP);
+		Vector cosSin = new Vector(Math.cos(currentTimeScaled), Math.sin(currentTimeScaled)).scale(Game.getFixedTimestep());
 		
 		// moves the ship around in a small circle for it to be a bit more dynamic
 		this.ship.transform.position.translate(cosSin.scale(3 * Math.random()));
 		this.ship.transform.rotation += cosSin.x * Math.random() * 0.02;
+		
+		// places the remote entities at the time being shown
+		ClientManager.update();
 	}
 
 	/**
@@ -104,10 +108,9 @@ public class GameScene extends Scene {
 	 */
 	@Override
 	public void fixedUpdate() {
-		// ticks both the server and client
-		// if either are not running, it won't update
+		// ticks the client, if it isn't running it won't update,
+		// the server keeps its own clock
 		CClient.instance().tick();
-		Server.instance().tick();
 	}
 
 	/**
@@ -84,7 +84,7 @@ public class MainScene extends Scene {
 		this.inputManager.updateMousePosition();
 
 		long time = System.currentTimeMillis();
-		Vector cosSin = new Vector(Math.cos(time), Math.sin(time)).scale(Game.FIXED_TIMESTEP);
+		Vector cosSin = new Vector(Math.cos(time), Math.sin(time)).scale(Game.getFixedTimestep());
 
 		this.back.transform.position.translate(cosSin.scale(5 * Math.random()));
 		this.stars.transform.position.translate(cosSin.scale(25 * Math.random()));
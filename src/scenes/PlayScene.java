@@ -107,7 +107,7 @@ public class PlayScene extends Scene {
 	@Override
 	public void fixedUpdate() {
 		long time = System.currentTimeMillis();
-		Vector cosSin = new Vector(Math.cos(time), Math.sin(time)).scale(Game.FIXED_TIMESTEP);
+		Vector cosSin = new Vector(Math.cos(time), Math.sin(time)).scale(Game.getFixedTimestep());
 		
 		// moves the background around a little bit so it is more dynamic
 		this.back.transform.position.translate(cosSin.scale(50 * Math.random()));
@@ -4,7 +4,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 
-import framework.components.Component;
+import framework.components.ComponentRegistry;
 import framework.components.Renderer;
 import game.Game;
 
@@ -86,8 +86,8 @@ public abstract class Scene {
 		// removes all the components from the old scene
 		Game.getContentPane().removeAll();		
 		
-		// resets both the component and renderer classes
-		Component.reset();
+		// resets the game's components and the renderer class, a server's are its own
+		ComponentRegistry.CLIENT.clear();
 		Renderer.reset();
 		
 		// sets the new scene, then starts it